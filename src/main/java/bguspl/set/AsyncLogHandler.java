@@ -0,0 +1,302 @@
+package bguspl.set;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.ErrorManager;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+/**
+ * A log handler that never makes the logging thread wait for formatting or for the disk: the logging threads only put
+ * the time, level, message and parameters of each record into a bounded lock-free ring buffer, and a background thread
+ * formats the records in batches and appends them to the log file through a file channel.
+ * When the buffer is full the record is dropped (and counted); the writer logs the number of dropped records.
+ * The writer formats the records with the format set by setFormat (the formatter of the handler is not used); the
+ * default format, "[HH:mm:ss.SSS] [LEVEL  ] message", is formatted without String.format.
+ */
+public class AsyncLogHandler extends Handler {
+
+    private static final int BATCH = 256;
+    private static final long IDLE_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+    private static final long FLUSH_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(1);
+    private static final String DEFAULT_FORMAT = "[%1$tT.%1$tL] [%2$-7s] %3$s%n";
+
+    private final FileChannel channel;
+
+    /**
+     * The ring buffer: the sequence of each slot tells whether it is free for the record at position p (p) or holds
+     * the record at position p (p + 1); the producers claim positions at the tail, the writer consumes at the head.
+     */
+    private final int mask;
+    private final AtomicLongArray sequences;
+    private final long[] millis;
+    private final Level[] levels;
+    private final String[] messages;
+    private final Object[][] parameters;
+    private final AtomicLong tail = new AtomicLong();
+    private long head;
+
+    /**
+     * The number of records dropped because the buffer was full, and the number the writer already reported.
+     */
+    private final AtomicLong dropped = new AtomicLong();
+    private long reported;
+
+    /**
+     * The number of records written to the file so far.
+     */
+    private volatile long written;
+
+    private volatile boolean closed;
+    private final Thread writer;
+
+    /**
+     * The writer's formatting state.
+     */
+    private final StringBuilder batch = new StringBuilder(BATCH * 64);
+    private final Map<Level, String> levelNames = new HashMap<>();
+    private final TimeZone timeZone = TimeZone.getDefault();
+
+    /**
+     * The format of the records (see setFormat), or null for the default format.
+     */
+    private volatile String format;
+
+    /**
+     * @param file     - the log file (created, or truncated if it exists).
+     * @param capacity - the number of records the buffer holds (rounded up to a power of two).
+     */
+    public AsyncLogHandler(Path file, int capacity) throws IOException {
+        int size = Integer.highestOneBit(Math.max(2, capacity) * 2 - 1);
+        mask = size - 1;
+        sequences = new AtomicLongArray(size);
+        for (int i = 0; i < size; i++) sequences.set(i, i);
+        millis = new long[size];
+        levels = new Level[size];
+        messages = new String[size];
+        parameters = new Object[size][];
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING);
+        writer = new Thread(this::write, "log-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void publish(LogRecord record) {
+        if (closed || !isLoggable(record)) return;
+        long position;
+        int slot;
+        while (true) {
+            position = tail.get();
+            slot = (int) position & mask;
+            long sequence = sequences.get(slot);
+            if (sequence == position) {
+                if (tail.compareAndSet(position, position + 1)) break;
+            } else if (sequence < position) {
+                dropped.incrementAndGet();
+                return;
+            }
+        }
+        millis[slot] = record.getMillis();
+        levels[slot] = record.getLevel();
+        messages[slot] = record.getMessage();
+        parameters[slot] = record.getParameters();
+        sequences.lazySet(slot, position + 1);
+    }
+
+    /**
+     * Sets the format of the records written from now on.
+     *
+     * @param format - a String.format format of the time (a Date), the level name and the message, e.g.
+     *               "[%1$tT.%1$tL] [%2$-7s] %3$s%n".
+     */
+    public void setFormat(String format) {
+        this.format = DEFAULT_FORMAT.equals(format) ? null : format;
+    }
+
+    /**
+     * Waits (up to a second) until the records published so far are written.
+     */
+    @Override
+    public void flush() {
+        long target = tail.get();
+        long deadline = System.nanoTime() + FLUSH_TIMEOUT_NANOS;
+        while (written < target && writer.isAlive() && System.nanoTime() < deadline) {
+            LockSupport.unpark(writer);
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    /**
+     * Writes the pending records and closes the file.
+     */
+    @Override
+    public void close() {
+        if (closed) return;
+        closed = true;
+        LockSupport.unpark(writer);
+        try {
+            writer.join(TimeUnit.NANOSECONDS.toMillis(FLUSH_TIMEOUT_NANOS));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * @return - the number of records dropped so far because the buffer was full.
+     */
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    private void write() {
+        try {
+            while (true) {
+                boolean closing = closed;
+                int count = drain();
+                if (count > 0) {
+                    writeBatch();
+                    written += count;
+                    continue;
+                }
+                reportDrops();
+                if (batch.length() > 0) writeBatch();
+                if (closing) break;
+                LockSupport.parkNanos(IDLE_NANOS);
+            }
+        } catch (IOException e) {
+            reportError("failed writing the log file", e, ErrorManager.WRITE_FAILURE);
+        } finally {
+            try {
+                channel.close();
+            } catch (IOException e) {
+                reportError("failed closing the log file", e, ErrorManager.CLOSE_FAILURE);
+            }
+        }
+    }
+
+    /**
+     * Formats up to a batch of records into the batch buffer.
+     *
+     * @return - the number of records formatted.
+     */
+    private int drain() {
+        int count = 0;
+        while (count < BATCH) {
+            int slot = (int) head & mask;
+            if (sequences.get(slot) != head + 1) break;
+            format(millis[slot], levels[slot], message(messages[slot], parameters[slot]));
+            levels[slot] = null;
+            messages[slot] = null;
+            parameters[slot] = null;
+            sequences.lazySet(slot, head + mask + 1);
+            head++;
+            count++;
+        }
+        return count;
+    }
+
+    private void reportDrops() {
+        long drops = dropped.get();
+        if (drops == reported) return;
+        format(System.currentTimeMillis(), Level.WARNING, "log buffer full: dropped " + (drops - reported)
+                + " records (" + drops + " in total)");
+        reported = drops;
+    }
+
+    /**
+     * Substitutes the parameters of a log message: each "{n}" is replaced with the string value of parameter n.
+     * Unlike MessageFormat, numbers are not grouped (so the messages read the same as concatenated ones) and quotes
+     * are not special.
+     *
+     * @param message    - the message (null for none).
+     * @param parameters - the parameters (null for none).
+     * @return - the message with the parameters substituted.
+     */
+    static String message(String message, Object[] parameters) {
+        if (message == null) return "";
+        if (parameters == null || parameters.length == 0 || message.indexOf('{') < 0) return message;
+        StringBuilder text = new StringBuilder(message.length() + 16 * parameters.length);
+        int from = 0;
+        for (int open = message.indexOf('{'); open >= 0; open = message.indexOf('{', open + 1)) {
+            int close = message.indexOf('}', open);
+            if (close < 0) break;
+            int index = parameterIndex(message, open + 1, close);
+            if (index < 0 || index >= parameters.length) continue;
+            text.append(message, from, open).append(parameters[index]);
+            from = close + 1;
+            open = close;
+        }
+        return text.append(message, from, message.length()).toString();
+    }
+
+    /**
+     * @return - the parameter index written in message[from, to), or -1 if it is not a number.
+     */
+    private static int parameterIndex(String message, int from, int to) {
+        if (from == to || to - from > 4) return -1;
+        int index = 0;
+        for (int i = from; i < to; i++) {
+            char c = message.charAt(i);
+            if (c < '0' || c > '9') return -1;
+            index = index * 10 + (c - '0');
+        }
+        return index;
+    }
+
+    /**
+     * Appends a record in the format of the handler to the batch.
+     */
+    private void format(long time, Level level, String message) {
+        String custom = format;
+        if (custom != null) {
+            batch.append(String.format(custom, new Date(time), level.getLocalizedName(), message));
+            return;
+        }
+        long local = time + timeZone.getOffset(time);
+        long millisOfDay = Math.floorMod(local, TimeUnit.DAYS.toMillis(1));
+        batch.append('[');
+        appendPadded(millisOfDay / 3_600_000, 2);
+        batch.append(':');
+        appendPadded(millisOfDay / 60_000 % 60, 2);
+        batch.append(':');
+        appendPadded(millisOfDay / 1000 % 60, 2);
+        batch.append('.');
+        appendPadded(millisOfDay % 1000, 3);
+        batch.append("] [").append(levelNames.computeIfAbsent(level, AsyncLogHandler::levelName)).append("] ")
+                .append(message).append(System.lineSeparator());
+    }
+
+    private void appendPadded(long value, int digits) {
+        for (long limit = 10; digits > 1; digits--, limit *= 10)
+            if (value < limit) batch.append('0');
+        batch.append(value);
+    }
+
+    private static String levelName(Level level) {
+        StringBuilder name = new StringBuilder(level.getLocalizedName());
+        while (name.length() < 7) name.append(' ');
+        return name.toString();
+    }
+
+    private void writeBatch() throws IOException {
+        ByteBuffer bytes = StandardCharsets.UTF_8.encode(CharBuffer.wrap(batch));
+        while (bytes.hasRemaining()) channel.write(bytes);
+        batch.setLength(0);
+    }
+}
@@ -0,0 +1,115 @@
+package bguspl.set;
+
+import bguspl.set.ex.EventLoopDealer;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.logging.Logger;
+
+/**
+ * Runs a round-robin tournament between bots: every pair of bots plays a number of headless two player matches
+ * (half of them with swapped seats), on as many event loop games in parallel as there are cores.
+ * Reports for every bot its wins, draws and losses, its claim accuracy (points out of claims) and the latency of its
+ * decisions.
+ * Usage: BotTournament [matches per pair (default 4)] [bot names (default: sets random)]
+ * where a bot name is "sets", "random" or the class name of a bguspl.set.ex.Bot implementation.
+ */
+public class BotTournament {
+
+    /**
+     * The accumulated results of a bot.
+     */
+    private static class Record {
+        int games, wins, draws, points, claims, timeouts;
+        final LatencyHistogram decisionLatency = new LatencyHistogram();
+
+        synchronized void add(EventLoopDealer match, int player, int opponent) {
+            int[] scores = match.scores();
+            games++;
+            if (scores[player] > scores[opponent]) wins++;
+            else if (scores[player] == scores[opponent]) draws++;
+            points += scores[player];
+            claims += match.claims()[player];
+            timeouts += match.decisionTimeouts(player);
+            decisionLatency.merge(match.decisionLatency(player));
+        }
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        int matches = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        List<String> bots = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) bots.add(args[i]);
+        if (bots.isEmpty()) {
+            bots.add("sets");
+            bots.add("random");
+        }
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Util util = new UtilImpl(matchConfig(logger, bots.get(0), bots.get(0))); // shared: the deck is the same
+        UserInterface headless = new UserInterfaceDecorator(logger, util, null);
+        Map<String, Record> records = new LinkedHashMap<>();
+        for (String bot : bots) records.put(bot, new Record());
+
+        GameThreads threads = new GameThreads(); // shared: one decision pool for all the matches
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<?>> futures = new ArrayList<>();
+        long start = System.currentTimeMillis();
+        for (int a = 0; a < bots.size(); a++)
+            for (int b = a + 1; b < bots.size(); b++)
+                for (int match = 0; match < matches; match++) {
+                    // swap the seats every other match
+                    String first = bots.get(match % 2 == 0 ? a : b);
+                    String second = bots.get(match % 2 == 0 ? b : a);
+                    Env env = new Env(logger, matchConfig(logger, first, second), headless, util, threads);
+                    EventLoopDealer game = new EventLoopDealer(env);
+                    futures.add(pool.submit(() -> {
+                        game.run();
+                        records.get(first).add(game, 0, 1);
+                        records.get(second).add(game, 1, 0);
+                    }));
+                }
+
+        for (Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (ExecutionException e) {
+                System.out.println("match failed: " + e.getCause());
+            }
+        }
+        pool.shutdown();
+        threads.shutdown();
+
+        System.out.println(futures.size() + " matches played in " + (System.currentTimeMillis() - start) + " ms");
+        System.out.println(String.format("%-24s %5s %5s %5s %5s %8s %9s %9s %9s %8s", "bot", "games", "wins", "draws",
+                "losses", "accuracy", "p50 (ms)", "p99 (ms)", "max (ms)", "timeouts"));
+        records.forEach((bot, r) -> {
+            System.out.println(String.format("%-24s %5d %5d %5d %5d %7.1f%% %9.3f %9.3f %9.3f %8d", bot, r.games,
+                    r.wins, r.draws, r.games - r.wins - r.draws, r.claims == 0 ? 0.0 : 100.0 * r.points / r.claims,
+                    r.decisionLatency.percentileNanos(50) / 1e6, r.decisionLatency.percentileNanos(99) / 1e6,
+                    r.decisionLatency.maxNanos() / 1e6, r.timeouts));
+        });
+    }
+
+    private static Config matchConfig(Logger logger, String first, String second) {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("ComputerBots", first + "," + second);
+        properties.put("TableDelaySeconds", "0");
+        properties.put("TurnTimeoutSeconds", "5");
+        properties.put("TurnTimeoutWarningSeconds", "0");
+        properties.put("ComputerReactionSeconds", "0.1");
+        properties.put("ComputerReactionJitterSeconds", "0.03");
+        properties.put("ComputerKeyPressesPerSecond", "20");
+        return new Config(logger, properties);
+    }
+}
@@ -0,0 +1,120 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntConsumer;
+import java.util.logging.Logger;
+
+/**
+ * All the card images of a deck, pre-decoded at the cell size and packed in one file (generated by CardAtlasTool).
+ * The file is memory mapped and copied in one go into a single image holding all the cards one below the other (the
+ * empty card last), so there is nothing to decode at startup and the card images share one buffer.
+ * File format (big endian): magic, version, cell width, cell height, feature size, feature count, number of images,
+ * followed by the ARGB pixels of every image, row by row.
+ */
+class CardAtlas implements CardImages {
+
+    private static final int MAGIC = 0x53455441; // "SETA"
+    private static final int VERSION = 1;
+    private static final int HEADER_INTS = 7;
+
+    private final Config config;
+
+    /**
+     * The images of the cards (views of one image), the empty card last.
+     */
+    private final Image[] images;
+
+    private CardAtlas(Config config, Image[] images) {
+        this.config = config;
+        this.images = images;
+    }
+
+    /**
+     * Maps an atlas file.
+     *
+     * @param file   - the atlas file.
+     * @param config - the game configuration (the atlas must match its deck and cell size).
+     * @param logger - the logger.
+     * @return - the atlas.
+     * @throws IOException - if the file cannot be read or does not match the configuration.
+     */
+    static CardAtlas open(Path file, Config config, Logger logger) throws IOException {
+        long start = System.currentTimeMillis();
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.remaining() < HEADER_INTS * 4 || buffer.getInt() != MAGIC || buffer.getInt() != VERSION)
+                throw new IOException("not a card atlas");
+            int width = buffer.getInt();
+            int height = buffer.getInt();
+            int featureSize = buffer.getInt();
+            int featureCount = buffer.getInt();
+            int count = buffer.getInt();
+            if (width != config.cellWidth || height != config.cellHeight || featureSize != config.featureSize
+                    || featureCount != config.featureCount || count != config.deckSize + 1)
+                throw new IOException("the atlas is of " + featureCount + " features of size " + featureSize + " at "
+                        + width + "x" + height + ", not of the configured deck and cell size");
+            if (buffer.remaining() != (long) width * height * count * 4)
+                throw new IOException("truncated card atlas");
+
+            BufferedImage atlas = new BufferedImage(width, height * count, BufferedImage.TYPE_INT_ARGB);
+            buffer.asIntBuffer().get(((DataBufferInt) atlas.getRaster().getDataBuffer()).getData());
+            Image[] images = new Image[count];
+            for (int i = 0; i < count; i++)
+                images[i] = atlas.getSubimage(0, i * height, width, height);
+            logger.info("mapped card atlas " + file + " (" + count + " images) in " + (System.currentTimeMillis() - start) + " ms");
+            return new CardAtlas(config, images);
+        }
+    }
+
+    /**
+     * Writes an atlas file.
+     *
+     * @param file   - the atlas file.
+     * @param config - the game configuration (the deck and the cell size).
+     * @param images - the image of every card, then the image of the empty card.
+     * @throws IOException - if the file cannot be written.
+     */
+    static void write(Path file, Config config, Image[] images) throws IOException {
+        int width = config.cellWidth;
+        int height = config.cellHeight;
+        BufferedImage cell = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) cell.getRaster().getDataBuffer()).getData();
+        ByteBuffer row = ByteBuffer.allocate(pixels.length * 4);
+        try (OutputStream out = Files.newOutputStream(file)) {
+            DataOutputStream header = new DataOutputStream(out);
+            for (int value : new int[]{MAGIC, VERSION, width, height, config.featureSize, config.featureCount, images.length})
+                header.writeInt(value);
+            header.flush();
+            for (Image image : images) {
+                Graphics2D g = cell.createGraphics();
+                g.setComposite(AlphaComposite.Src);
+                g.drawImage(image, 0, 0, width, height, null);
+                g.dispose();
+                row.clear();
+                row.asIntBuffer().put(pixels);
+                out.write(row.array());
+            }
+        }
+    }
+
+    @Override
+    public void start(IntConsumer loaded) {
+        // the images are ready
+    }
+
+    @Override
+    public Image image(int card) {
+        return images[card == EMPTY ? config.deckSize : card];
+    }
+}
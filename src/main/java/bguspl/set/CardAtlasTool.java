@@ -0,0 +1,34 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.logging.Logger;
+
+/**
+ * Generates the card atlas of a configuration (see CardAtlas) from the card images in the cards resources.
+ * Usage: CardAtlasTool [config file (default config.properties)] [atlas file (default card-atlas.bin)]
+ * Also runs as part of the build with "mvn -P card-atlas process-classes" (writes target/card-atlas.bin).
+ */
+public class CardAtlasTool {
+
+    public static void main(String[] args) throws IOException {
+        Logger logger = Logger.getAnonymousLogger();
+        Config config = new Config(logger, args.length > 0 ? args[0] : "config.properties");
+        Path file = Paths.get(args.length > 1 ? args[1] : "card-atlas.bin").toAbsolutePath();
+
+        long start = System.currentTimeMillis();
+        CardImageLoader loader = new CardImageLoader(logger, config);
+        Image[] images = new Image[config.deckSize + 1];
+        for (int card = 0; card < config.deckSize; card++)
+            images[card] = loader.loadNow(card);
+        images[config.deckSize] = loader.loadNow(CardImages.EMPTY);
+
+        Files.createDirectories(file.getParent());
+        CardAtlas.write(file, config, images);
+        System.out.println("wrote " + images.length + " card images at " + config.cellWidth + "x" + config.cellHeight
+                + " to " + file + " (" + Files.size(file) / 1024 + " KB) in " + (System.currentTimeMillis() - start) + " ms");
+    }
+}
@@ -0,0 +1,158 @@
+package bguspl.set;
+
+import javax.imageio.ImageIO;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URL;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.IntConsumer;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * Loads the card images in the background, in parallel, and scales them once to the cell size (so painting them does
+ * not rescale). Until a card image is loaded, a placeholder is returned in its place.
+ */
+class CardImageLoader implements CardImages {
+
+    /**
+     * The pool decoding the card images of all the windows in the JVM.
+     */
+    private static final ExecutorService pool = Executors.newFixedThreadPool(
+            Runtime.getRuntime().availableProcessors(), new ThreadFactory() {
+                private final AtomicInteger next = new AtomicInteger();
+
+                @Override
+                public Thread newThread(Runnable r) {
+                    Thread thread = new Thread(r, "card-loader-" + next.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
+    /**
+     * The scaled card images, shared by all the windows in the JVM (the images are immutable), by name and size.
+     */
+    private static final Map<String, Image> cache = new ConcurrentHashMap<>();
+
+    private final Config config;
+    private final Logger logger;
+    private final Image placeholder;
+
+    /**
+     * The loaded images (null until loaded): the cards, then the empty card.
+     */
+    private final AtomicReferenceArray<Image> images;
+    private final AtomicInteger remaining;
+
+    CardImageLoader(Logger logger, Config config) {
+        this.config = config;
+        this.logger = logger;
+        this.images = new AtomicReferenceArray<>(config.deckSize + 1);
+        this.remaining = new AtomicInteger(config.deckSize + 1);
+        this.placeholder = placeholder(config.cellWidth, config.cellHeight);
+    }
+
+    /**
+     * Starts loading all the card images in the background (the empty card first).
+     *
+     * @param loaded - called on the event dispatch thread with the id of every card whose image was loaded.
+     */
+    @Override
+    public void start(IntConsumer loaded) {
+        long start = System.currentTimeMillis();
+        for (int card = EMPTY; card < config.deckSize; card++) {
+            int id = card;
+            pool.execute(() -> {
+                try {
+                    images.set(index(id), loadNow(id));
+                    EventQueue.invokeLater(() -> loaded.accept(id));
+                } catch (RuntimeException e) {
+                    logger.log(Level.SEVERE, "failed loading " + resourceName(id) + ": " + e);
+                }
+                if (remaining.decrementAndGet() == 0)
+                    logger.info("loaded " + (config.deckSize + 1) + " card images in " + (System.currentTimeMillis() - start) + " ms");
+            });
+        }
+    }
+
+    /**
+     * @param card - the card id (EMPTY for the empty card).
+     * @return - the image of the card at the cell size, or a placeholder if it is not loaded yet.
+     */
+    @Override
+    public Image image(int card) {
+        Image image = images.get(index(card));
+        return image != null ? image : placeholder;
+    }
+
+    /**
+     * Loads a card image on the calling thread (or takes it from the cache).
+     *
+     * @param card - the card id (EMPTY for the empty card).
+     * @return - the image of the card at the cell size.
+     */
+    Image loadNow(int card) {
+        String name = resourceName(card);
+        return cache.computeIfAbsent(name + "@" + config.cellWidth + "x" + config.cellHeight, key -> load(name));
+    }
+
+    private String resourceName(int card) {
+        return resourceName(config, card);
+    }
+
+    private static String resourceName(Config config, int card) {
+        assert config.featureSize < 10; // otherwise there will be naming conflicts
+        return card == EMPTY ? "cards/empty_card.png"
+                : "cards/" + UserInterfaceSwing.intInBaseToPaddedString(card, config.featureCount, config.featureSize) + ".png";
+    }
+
+    /**
+     * @return - true iff there are card image resources for the deck of the configuration.
+     */
+    static boolean hasResources(Config config) {
+        return config.featureSize < 10
+                && CardImageLoader.class.getClassLoader().getResource(resourceName(config, config.deckSize - 1)) != null;
+    }
+
+    private int index(int card) {
+        return card == EMPTY ? config.deckSize : card;
+    }
+
+    private Image load(String name) {
+        URL resource = getClass().getClassLoader().getResource(name);
+        if (resource == null) throw new UncheckedIOException(new FileNotFoundException(name));
+        BufferedImage source;
+        try {
+            source = ImageIO.read(resource);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (source.getWidth() == config.cellWidth && source.getHeight() == config.cellHeight) return source;
+        BufferedImage scaled = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = scaled.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g.drawImage(source, 0, 0, config.cellWidth, config.cellHeight, null);
+        g.dispose();
+        return scaled;
+    }
+
+    private static Image placeholder(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.LIGHT_GRAY);
+        g.fillRoundRect(4, 4, width - 8, height - 8, 20, 20);
+        g.dispose();
+        return image;
+    }
+}
@@ -0,0 +1,57 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.function.IntConsumer;
+import java.util.logging.Logger;
+
+/**
+ * A source of card images at the cell size.
+ */
+interface CardImages {
+
+    /**
+     * The card id of the empty card.
+     */
+    int EMPTY = -1;
+
+    /**
+     * Starts preparing the card images (in the background, if it takes time).
+     *
+     * @param loaded - called on the event dispatch thread with the id of every card whose image became ready.
+     */
+    void start(IntConsumer loaded);
+
+    /**
+     * @param card - the card id (EMPTY for the empty card).
+     * @return - the image of the card at the cell size (a placeholder if it is not ready yet).
+     */
+    Image image(int card);
+
+    /**
+     * @return - the procedurally drawn cards if so configured (or if there are no card image resources for the deck),
+     * otherwise the card atlas if config.cardAtlasFile is set and matches the configuration, otherwise the card images
+     * loaded from the card resources.
+     */
+    static CardImages create(Logger logger, Config config) {
+        boolean procedural = config.cardRenderer.equals("procedural");
+        if (config.cardRenderer.equals("auto") && !CardImageLoader.hasResources(config)) {
+            logger.info("no card images for " + config.featureCount + " features of size " + config.featureSize
+                    + ", drawing the cards");
+            procedural = true;
+        }
+        if (procedural) return new CardRenderer(config, config.cardCacheSize);
+
+        if (!config.cardAtlasFile.isEmpty()) {
+            try {
+                return CardAtlas.open(Paths.get(config.cardAtlasFile), config, logger);
+            } catch (IOException e) {
+                logger.severe("cannot use card atlas " + config.cardAtlasFile + ": " + e.getMessage()
+                        + (Files.exists(Paths.get(config.cardAtlasFile)) ? "" : " (generate it with CardAtlasTool)"));
+            }
+        }
+        return new CardImageLoader(logger, config);
+    }
+}
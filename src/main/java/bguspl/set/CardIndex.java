@@ -0,0 +1,120 @@
+package bguspl.set;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Immutable lookup tables derived from the deck dimensions (feature size and feature count).
+ * Instances are shared between all the games (and threads) that use the same deck dimensions.
+ */
+public final class CardIndex {
+
+    private static final ConcurrentMap<Long, CardIndex> cache = new ConcurrentHashMap<>();
+
+    /**
+     * The largest deck for which the set completion table is precomputed (the table has deckSize^2 entries, 236 KB for
+     * a deck of 3^5 cards); the completions of larger decks are computed on demand.
+     */
+    private static final int MAX_COMPLETION_DECK = 1 << 8;
+
+    public final int featureSize;
+    public final int featureCount;
+    public final int deckSize;
+
+    /**
+     * The features of all the cards in the deck: features[card * featureCount + i] is the i'th feature of card.
+     */
+    private final int[] features;
+
+    /**
+     * completion[a * deckSize + b] is the card that completes a set with cards a and b (only when featureSize == 3 and
+     * deckSize <= MAX_COMPLETION_DECK, null otherwise).
+     */
+    private final int[] completion;
+
+    private CardIndex(int featureSize, int featureCount) {
+        this.featureSize = featureSize;
+        this.featureCount = featureCount;
+        this.deckSize = (int) Math.pow(featureSize, featureCount);
+
+        features = new int[deckSize * featureCount];
+        for (int card = 0; card < deckSize; ++card) {
+            int id = card;
+            for (int i = featureCount - 1; i >= 0; --i) {
+                features[card * featureCount + i] = id % featureSize;
+                id /= featureSize;
+            }
+        }
+
+        if (featureSize == 3 && deckSize <= MAX_COMPLETION_DECK) {
+            completion = new int[deckSize * deckSize];
+            for (int a = 0; a < deckSize; ++a)
+                for (int b = 0; b < deckSize; ++b)
+                    completion[a * deckSize + b] = computeThirdCard(a, b);
+        } else completion = null;
+    }
+
+    /**
+     * Returns the shared index for the given deck dimensions (creating it on first use).
+     *
+     * @param featureSize  - the number of choices for each feature.
+     * @param featureCount - the number of features on the cards.
+     * @return - the index.
+     */
+    public static CardIndex of(int featureSize, int featureCount) {
+        long key = ((long) featureSize << 32) | featureCount;
+        return cache.computeIfAbsent(key, k -> new CardIndex(featureSize, featureCount));
+    }
+
+    public static CardIndex of(Config config) {
+        return of(config.featureSize, config.featureCount);
+    }
+
+    /**
+     * @param card    - the card id.
+     * @param feature - the feature number (between 0 and featureCount - 1).
+     * @return - the value of the feature on the card.
+     */
+    public int feature(int card, int feature) {
+        return features[card * featureCount + feature];
+    }
+
+    /**
+     * Copies the features of a card into an array.
+     *
+     * @param card - the card id.
+     * @param dest - an array of at least featureCount elements.
+     */
+    public void copyFeatures(int card, int[] dest) {
+        System.arraycopy(features, card * featureCount, dest, 0, featureCount);
+    }
+
+    /**
+     * @return - true iff the set completion lookup (thirdCard) is available for this deck.
+     */
+    public boolean hasCompletion() {
+        return featureSize == 3;
+    }
+
+    /**
+     * Returns the only card that forms a legal set together with cards a and b.
+     * Only available when hasCompletion() is true.
+     *
+     * @param a - a card id.
+     * @param b - another card id.
+     * @return - the card id completing the set.
+     */
+    public int thirdCard(int a, int b) {
+        return completion != null ? completion[a * deckSize + b] : computeThirdCard(a, b);
+    }
+
+    private int computeThirdCard(int a, int b) {
+        int card = 0;
+        for (int i = 0; i < featureCount; ++i) {
+            int fa = features[a * featureCount + i];
+            int fb = features[b * featureCount + i];
+            card = card * 3 + (fa == fb ? fa : 3 - fa - fb);
+        }
+        return card;
+    }
+}
@@ -0,0 +1,167 @@
+package bguspl.set;
+
+import java.awt.*;
+import java.awt.geom.Ellipse2D;
+import java.awt.geom.Path2D;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+
+/**
+ * Draws the card images from the card features, for any deck (no image resources needed):
+ * feature 0 is the number of symbols, feature 1 their color, feature 2 their shape and feature 3 their fill; any
+ * further features are shown as a row of marks at the bottom of the card (one mark per feature, the value being the
+ * number of dots in the mark).
+ * The rendered cards are kept in a bounded LRU cache, so only the recently displayed cards stay in memory.
+ * Not thread safe: used on the event dispatch thread only.
+ */
+class CardRenderer implements CardImages {
+
+    private final Config config;
+    private final CardIndex index;
+    private final int[] features;
+    private final Map<Integer, Image> cache;
+
+    /**
+     * @param config   - the game configuration.
+     * @param capacity - the maximal number of rendered cards to keep.
+     */
+    CardRenderer(Config config, int capacity) {
+        this.config = config;
+        this.index = CardIndex.of(config);
+        this.features = new int[config.featureCount];
+        this.cache = new LinkedHashMap<Integer, Image>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Integer, Image> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public void start(IntConsumer loaded) {
+        // the cards are rendered when they are first displayed
+    }
+
+    @Override
+    public Image image(int card) {
+        return cache.computeIfAbsent(card, this::render);
+    }
+
+    private Image render(int card) {
+        int width = config.cellWidth;
+        int height = config.cellHeight;
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = image.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+        g.setColor(Color.WHITE);
+        g.fillRoundRect(2, 2, width - 4, height - 4, 16, 16);
+        g.setColor(Color.GRAY);
+        g.drawRoundRect(2, 2, width - 5, height - 5, 16, 16);
+        if (card != EMPTY) {
+            index.copyFeatures(card, features);
+            drawSymbols(g, width, height);
+            drawExtraFeatures(g, width, height);
+        }
+        g.dispose();
+        return image;
+    }
+
+    private void drawSymbols(Graphics2D g, int width, int height) {
+        int count = feature(0) + 1;
+        Color color = Color.getHSBColor((float) feature(1) / config.featureSize, 0.85f, 0.8f);
+        boolean extras = config.featureCount > 4;
+        double slot = (width - 16.0) / Math.max(count, config.featureSize);
+        double symbolWidth = slot * 0.7;
+        double symbolHeight = (height - 16.0) * (extras ? 0.6 : 0.75);
+        double x = (width - slot * count) / 2 + (slot - symbolWidth) / 2;
+        double y = (extras ? height * 0.42 : height / 2.0) - symbolHeight / 2;
+        g.setStroke(new BasicStroke(2.5f));
+        for (int i = 0; i < count; i++, x += slot) {
+            Shape symbol = symbol(feature(2), x, y, symbolWidth, symbolHeight);
+            fill(g, symbol, color, feature(3));
+            g.setColor(color);
+            g.draw(symbol);
+        }
+    }
+
+    private Shape symbol(int shape, double x, double y, double w, double h) {
+        switch (shape % 4) {
+            case 0:
+                return new Ellipse2D.Double(x, y, w, h);
+            case 1: {
+                Path2D.Double diamond = new Path2D.Double();
+                diamond.moveTo(x + w / 2, y);
+                diamond.lineTo(x + w, y + h / 2);
+                diamond.lineTo(x + w / 2, y + h);
+                diamond.lineTo(x, y + h / 2);
+                diamond.closePath();
+                return diamond;
+            }
+            case 2:
+                return new Rectangle2D.Double(x, y, w, h);
+            default: {
+                // shapes beyond the fourth are regular polygons with more and more corners
+                int corners = 3 + shape / 4 * 2;
+                Path2D.Double polygon = new Path2D.Double();
+                for (int i = 0; i < corners; i++) {
+                    double angle = 2 * Math.PI * i / corners - Math.PI / 2;
+                    double px = x + w / 2 + Math.cos(angle) * w / 2;
+                    double py = y + h / 2 + Math.sin(angle) * h / 2;
+                    if (i == 0) polygon.moveTo(px, py);
+                    else polygon.lineTo(px, py);
+                }
+                polygon.closePath();
+                return polygon;
+            }
+        }
+    }
+
+    /**
+     * Fills a symbol: 0 is empty, 1 striped, 2 solid, further values are dotted with denser and denser dots.
+     */
+    private void fill(Graphics2D g, Shape symbol, Color color, int fill) {
+        if (fill == 0) return;
+        g.setColor(color);
+        if (fill == 2) {
+            g.fill(symbol);
+            return;
+        }
+        Shape clip = g.getClip();
+        g.clip(symbol);
+        Rectangle bounds = symbol.getBounds();
+        if (fill == 1) {
+            for (int y = bounds.y; y < bounds.y + bounds.height; y += 5)
+                g.drawLine(bounds.x, y, bounds.x + bounds.width, y);
+        } else {
+            int step = Math.max(3, 12 - fill);
+            for (int y = bounds.y; y < bounds.y + bounds.height; y += step)
+                for (int x = bounds.x; x < bounds.x + bounds.width; x += step)
+                    g.fillOval(x, y, 2, 2);
+        }
+        g.setClip(clip);
+    }
+
+    private void drawExtraFeatures(Graphics2D g, int width, int height) {
+        int extras = config.featureCount - 4;
+        if (extras <= 0) return;
+        double mark = Math.min(height * 0.18, (width - 16.0) / extras);
+        double x = (width - mark * extras) / 2;
+        double y = height - mark - 8;
+        g.setStroke(new BasicStroke(1f));
+        for (int feature = 4; feature < config.featureCount; feature++, x += mark) {
+            g.setColor(Color.DARK_GRAY);
+            g.draw(new Rectangle2D.Double(x + 2, y, mark - 4, mark - 4));
+            int dots = feature(feature);
+            double dot = Math.max(2, (mark - 8) / Math.max(1, config.featureSize));
+            for (int i = 0; i < dots; i++)
+                g.fill(new Ellipse2D.Double(x + 4 + i * dot, y + (mark - 4) / 2 - dot / 2, dot * 0.8, dot * 0.8));
+        }
+    }
+
+    private int feature(int feature) {
+        return feature < features.length ? features[feature] : 0;
+    }
+}
@@ -0,0 +1,235 @@
+package bguspl.set;
+
+import javax.swing.Timer;
+import java.awt.EventQueue;
+import java.util.BitSet;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * A user interface that may be called from any thread: the game threads only record the latest state of every slot,
+ * token, timer and player (without locks and without touching Swing), and a single task on the event dispatch thread
+ * applies the changed state to the wrapped user interface at most config.uiFrameRate times per second.
+ * Repeated updates of the same slot, label or timer within a frame are coalesced into one.
+ */
+public class CoalescingUserInterface implements UserInterface {
+
+    private static final int EMPTY = -1;
+    private static final int TIMER_COUNTDOWN = 0;
+    private static final int TIMER_WARNING = 1;
+    private static final int TIMER_ELAPSED = 2;
+    private static final int TIMER_DEADLINE = 3;
+
+    /**
+     * A timer update: its value in milliseconds, its kind (countdown, countdown warning, elapsed time or deadline) and
+     * the warning time of a deadline.
+     */
+    private static final class TimerUpdate {
+        final long millies;
+        final int kind;
+        final long warningMillies;
+
+        TimerUpdate(long millies, int kind, long warningMillies) {
+            this.millies = millies;
+            this.kind = kind;
+            this.warningMillies = warningMillies;
+        }
+    }
+
+    private final Config config;
+    private final UserInterface ui;
+
+    /**
+     * The card in each slot (EMPTY if none), and whether each slot changed since the last frame.
+     */
+    private final AtomicIntegerArray cards;
+    private final AtomicIntegerArray cardChanged;
+
+    /**
+     * The tokens on each slot ([slot * players + player] is 1 iff the player has a token on the slot), and whether the
+     * tokens on each slot changed since the last frame.
+     */
+    private final AtomicIntegerArray tokens;
+    private final AtomicIntegerArray tokensChanged;
+
+    /**
+     * The players with a token on a changed slot (reused by every frame, on the event dispatch thread only).
+     */
+    private final BitSet slotTokens;
+
+    /**
+     * The last timer update since the last frame (null if none), published as a whole so a frame never mixes the
+     * fields of two updates.
+     */
+    private final AtomicReference<TimerUpdate> timer = new AtomicReference<>();
+
+    /**
+     * The freeze time and the score of each player, and whether they changed since the last frame.
+     */
+    private final AtomicLongArray freezes;
+    private final AtomicIntegerArray freezeChanged;
+    private final AtomicIntegerArray scores;
+    private final AtomicIntegerArray scoreChanged;
+
+    /**
+     * True iff anything changed since the last frame.
+     */
+    private final AtomicBoolean changed = new AtomicBoolean();
+
+    private final Timer frames;
+
+    /**
+     * @param config - the game configuration.
+     * @param ui     - the user interface to update (on the event dispatch thread only).
+     */
+    public CoalescingUserInterface(Config config, UserInterface ui) {
+        this.config = config;
+        this.ui = ui;
+        cards = new AtomicIntegerArray(config.tableSize);
+        for (int slot = 0; slot < config.tableSize; slot++) cards.set(slot, EMPTY);
+        cardChanged = new AtomicIntegerArray(config.tableSize);
+        tokens = new AtomicIntegerArray(config.tableSize * config.players);
+        tokensChanged = new AtomicIntegerArray(config.tableSize);
+        slotTokens = new BitSet(config.players);
+        freezes = new AtomicLongArray(config.players);
+        freezeChanged = new AtomicIntegerArray(config.players);
+        scores = new AtomicIntegerArray(config.players);
+        scoreChanged = new AtomicIntegerArray(config.players);
+
+        frames = new Timer(Math.max(1, Math.round(1000f / config.uiFrameRate)), e -> applyChanges());
+        frames.start();
+    }
+
+    /**
+     * Applies the state that changed since the last frame to the wrapped user interface (on the event dispatch thread).
+     */
+    void applyChanges() {
+        if (!changed.getAndSet(false)) return;
+        for (int slot = 0; slot < config.tableSize; slot++) {
+            if (cardChanged.getAndSet(slot, 0) == 0) continue;
+            int card = cards.get(slot);
+            if (card == EMPTY) ui.removeCard(slot);
+            else ui.placeCard(card, slot);
+        }
+        for (int slot = 0; slot < config.tableSize; slot++) {
+            if (tokensChanged.getAndSet(slot, 0) == 0) continue;
+            slotTokens.clear();
+            for (int player = 0; player < config.players; player++)
+                if (tokens.get(slot * config.players + player) == 1) slotTokens.set(player);
+            ui.setTokens(slot, slotTokens);
+        }
+        TimerUpdate update = timer.getAndSet(null);
+        if (update != null) {
+            if (update.kind == TIMER_ELAPSED) ui.setElapsed(update.millies);
+            else if (update.kind == TIMER_DEADLINE) ui.setCountdownDeadline(update.millies, update.warningMillies);
+            else ui.setCountdown(update.millies, update.kind == TIMER_WARNING);
+        }
+        for (int player = 0; player < config.players; player++) {
+            if (freezeChanged.getAndSet(player, 0) == 1) ui.setFreeze(player, freezes.get(player));
+            if (scoreChanged.getAndSet(player, 0) == 1) ui.setScore(player, scores.get(player));
+        }
+    }
+
+    private void setCard(int slot, int card) {
+        cards.set(slot, card);
+        cardChanged.set(slot, 1);
+        changed.set(true);
+    }
+
+    private void setToken(int player, int slot, boolean token) {
+        tokens.set(slot * config.players + player, token ? 1 : 0);
+        tokensChanged.set(slot, 1);
+        changed.set(true);
+    }
+
+    private void setTimer(long millies, int kind, long warningMillies) {
+        timer.set(new TimerUpdate(millies, kind, warningMillies));
+        changed.set(true);
+    }
+
+    @Override
+    public void placeCard(int card, int slot) {
+        setCard(slot, card);
+    }
+
+    @Override
+    public void removeCard(int slot) {
+        setCard(slot, EMPTY);
+    }
+
+    @Override
+    public void placeToken(int player, int slot) {
+        setToken(player, slot, true);
+    }
+
+    @Override
+    public void removeTokens() {
+        for (int slot = 0; slot < config.tableSize; slot++)
+            removeTokens(slot);
+    }
+
+    @Override
+    public void removeTokens(int slot) {
+        for (int player = 0; player < config.players; player++)
+            setToken(player, slot, false);
+    }
+
+    @Override
+    public void removeToken(int player, int slot) {
+        setToken(player, slot, false);
+    }
+
+    @Override
+    public void setTokens(int slot, BitSet players) {
+        for (int player = 0; player < config.players; player++)
+            setToken(player, slot, players.get(player));
+    }
+
+    @Override
+    public void setCountdown(long millies, boolean warn) {
+        setTimer(millies, warn ? TIMER_WARNING : TIMER_COUNTDOWN, 0);
+    }
+
+    @Override
+    public void setCountdownDeadline(long deadline, long warningMillies) {
+        setTimer(deadline, TIMER_DEADLINE, warningMillies);
+    }
+
+    @Override
+    public void setElapsed(long millies) {
+        setTimer(millies, TIMER_ELAPSED, 0);
+    }
+
+    @Override
+    public void setFreeze(int player, long millies) {
+        freezes.set(player, millies);
+        freezeChanged.set(player, 1);
+        changed.set(true);
+    }
+
+    @Override
+    public void setScore(int player, int score) {
+        scores.set(player, score);
+        scoreChanged.set(player, 1);
+        changed.set(true);
+    }
+
+    @Override
+    public void announceWinner(int[] players) {
+        EventQueue.invokeLater(() -> {
+            applyChanges();
+            ui.announceWinner(players);
+        });
+    }
+
+    @Override
+    public void dispose() {
+        frames.stop();
+        EventQueue.invokeLater(() -> {
+            applyChanges();
+            ui.dispose();
+        });
+    }
+}
@@ -51,6 +51,28 @@ public class Config {
      */
     public final int players;
 
+    /**
+     * The bots playing the computer players, assigned in a round-robin manner ("sets" to claim legal sets, "random"
+     * to claim random cards, or the class name of a bguspl.set.ex.Bot implementation)
+     */
+    public final String[] computerBots;
+
+    /**
+     * The number of milliseconds a bot may take to decide (slower decisions are discarded)
+     */
+    public final long botDecisionBudgetMillis;
+
+    /**
+     * The mean and the standard deviation (in milliseconds) of a computer player's reaction time to a table change
+     */
+    public final long computerReactionMillis;
+    public final long computerReactionJitterMillis;
+
+    /**
+     * The maximal number of keys a computer player presses per second
+     */
+    public final double computerKeyPressRate;
+
     /**
      * Whether to print out hints to the console or not
      */
@@ -86,6 +108,63 @@ public class Config {
      */
     public final long endGamePauseMillies;
 
+    /**
+     * Whether an auto repeated press of a held key is dropped if the same key press is still waiting to be handled by
+     * the player; otherwise key presses are dropped only when the player's queue is full
+     */
+    public final boolean coalesceKeyPresses;
+
+    /**
+     * The number of milliseconds a player waits for the dealer's verdict on its set before withdrawing it (0 waits forever)
+     */
+    public final long claimTimeoutMillis;
+
+    /**
+     * The number of threads validating set claims in parallel to the dealer (0 validates them on the dealer thread)
+     */
+    public final int claimValidators;
+
+    /**
+     * The number of claims per second a player may make in the long run (0 for no limit), and in a burst
+     */
+    public final double claimRate;
+    public final int claimBurst;
+
+    /**
+     * The number of milliseconds the dealer holds a claim before adjudicating it, so that claims are adjudicated in the
+     * order their keys were pressed even when they are submitted out of order
+     */
+    public final long claimReorderWindowMillis;
+
+    /**
+     * Whether to run the dealer, player and computer player loops on virtual threads (requires Java 21+, otherwise
+     * platform threads are used)
+     */
+    public final boolean virtualThreads;
+
+    /**
+     * Whether the game server runs each game as an event loop (EventLoopDealer), whose turns share a pool of threads,
+     * instead of the threaded dealer and players
+     */
+    public final boolean eventLoopEngine;
+
+    /**
+     * The number of games to run when hosting many games in one JVM (see GameServer)
+     */
+    public final int serverGames;
+
+    /**
+     * The number of threads running the turns of the event loop games of the game server (many games share each
+     * thread); games of the threaded engine each run on a dealer thread of their own
+     */
+    public final int serverParallelism;
+
+    /**
+     * The maximal number of games of the threaded engine the game server runs at once (each holds a dealer thread and
+     * a thread per player); the other submitted games wait for a running game to finish
+     */
+    public final int serverMaxGames;
+
     /**
      * The names of the players to display on the screen
      * Note: if there are more players than names, the remaining players will be called "Player 3", "Player 4", etc.
@@ -132,6 +211,59 @@ public class Config {
      */
     public final int fontSize;
 
+    /**
+     * The maximal number of times per second the screen is updated (updates within a frame are coalesced)
+     */
+    public final int uiFrameRate;
+
+    /**
+     * Whether the card grid is pre-composited into an off-screen image, so a repaint only copies it
+     */
+    public final boolean cardBackBuffer;
+
+    /**
+     * The card atlas file to map the card images from (generated by CardAtlasTool), or empty to load the card images
+     * from the card resources
+     */
+    public final String cardAtlasFile;
+
+    /**
+     * How the card images are made: "images" (from the card image resources or the card atlas), "procedural" (drawn
+     * from the card features) or "auto" (procedural iff there are no card image resources for the deck)
+     */
+    public final String cardRenderer;
+
+    /**
+     * The maximal number of procedurally drawn card images kept in memory
+     */
+    public final int cardCacheSize;
+
+    /**
+     * The number of players above which the scores are shown in a ranked, scrolling scoreboard
+     */
+    public final int scoreboardPlayers;
+
+    /**
+     * The directory of the binary game journal files (empty for no journal)
+     */
+    public final String journalDirectory;
+
+    /**
+     * The size (in bytes) of each memory-mapped game journal segment file
+     */
+    public final long journalSegmentBytes;
+
+    /**
+     * The directory of the columnar statistics files of the finished games (empty for no statistics; config.properties
+     * ships with ./stats/)
+     */
+    public final String statsDirectory;
+
+    /**
+     * A hash of the configuration properties (games with the same hash were played with the same configuration)
+     */
+    public final int configHash;
+
     /**
      * The scancodes of the keyboard input data for each player
      * Notes:
@@ -203,6 +335,12 @@ public class Config {
         computerPlayers = Integer.parseInt(properties.getProperty("ComputerPlayers", "0"));
         players = humanPlayers + computerPlayers;
 
+        computerBots = Arrays.stream(properties.getProperty("ComputerBots", "sets").split(",")).map(String::trim).toArray(String[]::new);
+        botDecisionBudgetMillis = (long) (Double.parseDouble(properties.getProperty("BotDecisionBudgetSeconds", "0.1")) * 1000.0);
+        computerReactionMillis = (long) (Double.parseDouble(properties.getProperty("ComputerReactionSeconds", "1")) * 1000.0);
+        computerReactionJitterMillis = (long) (Double.parseDouble(properties.getProperty("ComputerReactionJitterSeconds", "0.25")) * 1000.0);
+        computerKeyPressRate = Double.parseDouble(properties.getProperty("ComputerKeyPressesPerSecond", "10"));
+
         hints = Boolean.parseBoolean(properties.getProperty("Hints", "False"));
         turnTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutSeconds", "60")) * 1000.0);
         turnTimeoutWarningMillis = (long) (Double.parseDouble(properties.getProperty("TurnTimeoutWarningSeconds", "60")) * 1000.0);
@@ -210,6 +348,20 @@ public class Config {
         penaltyFreezeMillis = (long) (Double.parseDouble(properties.getProperty("PenaltyFreezeSeconds", "3")) * 1000.0);
         tableDelayMillis = (long) (Double.parseDouble(properties.getProperty("TableDelaySeconds", "0.1")) * 1000.0);
         endGamePauseMillies = (long) (Double.parseDouble(properties.getProperty("EndGamePauseSeconds", "5")) * 1000.0);
+        coalesceKeyPresses = Boolean.parseBoolean(properties.getProperty("CoalesceKeyPresses", "False"));
+        claimTimeoutMillis = (long) (Double.parseDouble(properties.getProperty("ClaimTimeoutSeconds", "10")) * 1000.0);
+        claimValidators = Integer.parseInt(properties.getProperty("ClaimValidators", "2"));
+        claimRate = Double.parseDouble(properties.getProperty("ClaimsPerSecond", "5"));
+        claimBurst = Integer.parseInt(properties.getProperty("ClaimBurst", "3"));
+        claimReorderWindowMillis = (long) (Double.parseDouble(properties.getProperty("ClaimReorderWindowSeconds", "0.005")) * 1000.0);
+
+        // server settings
+        virtualThreads = Boolean.parseBoolean(properties.getProperty("VirtualThreads", "False"));
+        eventLoopEngine = Boolean.parseBoolean(properties.getProperty("EventLoopEngine", "False"));
+        serverGames = Integer.parseInt(properties.getProperty("ServerGames", "100"));
+        serverParallelism = Integer.parseInt(properties.getProperty("ServerParallelism",
+                Integer.toString(Runtime.getRuntime().availableProcessors())));
+        serverMaxGames = Integer.parseInt(properties.getProperty("ServerMaxGames", "64"));
 
         // ui settings
         String[] names = properties.getProperty("PlayerNames", "Player 1, Player 2").split(",");
@@ -224,6 +376,18 @@ public class Config {
         playerCellWidth = Integer.parseInt(properties.getProperty("PlayerCellWidth", "300"));
         playerCellHeight = Integer.parseInt(properties.getProperty("PlayerCellHeight", "40"));
         fontSize = Integer.parseInt(properties.getProperty("FontSize", "40"));
+        uiFrameRate = Integer.parseInt(properties.getProperty("UiFramesPerSecond", "60"));
+        cardBackBuffer = Boolean.parseBoolean(properties.getProperty("CardBackBuffer", "False"));
+        cardAtlasFile = properties.getProperty("CardAtlasFile", "").trim();
+        cardRenderer = properties.getProperty("CardRenderer", "auto").trim().toLowerCase();
+        cardCacheSize = Integer.parseInt(properties.getProperty("CardCacheSize", Integer.toString(2 * tableSize + 1)));
+        scoreboardPlayers = Integer.parseInt(properties.getProperty("ScoreboardPlayers", "12"));
+
+        // game journal
+        journalDirectory = properties.getProperty("JournalDirectory", "").trim();
+        journalSegmentBytes = Long.parseLong(properties.getProperty("JournalSegmentBytes", Integer.toString(4 << 20)));
+        statsDirectory = properties.getProperty("StatsDirectory", "").trim();
+        configHash = properties.hashCode();
 
         // keyboard input data
         playerKeys = new int[players][rows * columns];
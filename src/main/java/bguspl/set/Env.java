@@ -8,11 +8,23 @@ public class Env {
     public final Config config;
     public final UserInterface ui;
     public final Util util;
+    public final GameThreads threads;
+    public final GameJournal journal;
 
     public Env(Logger logger, Config config, UserInterface ui, Util util) {
+        this(logger, config, ui, util, new GameThreads());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameThreads threads) {
+        this(logger, config, ui, util, threads, GameJournal.disabled());
+    }
+
+    public Env(Logger logger, Config config, UserInterface ui, Util util, GameThreads threads, GameJournal journal) {
         this.logger = logger;
         this.config = config;
         this.ui = ui;
         this.util = util;
+        this.threads = threads;
+        this.journal = journal;
     }
 }
@@ -0,0 +1,55 @@
+package bguspl.set;
+
+import bguspl.set.ex.Dealer;
+import bguspl.set.ex.Player;
+import bguspl.set.ex.Table;
+
+import java.util.Arrays;
+
+/**
+ * The entities of a single game (table, dealer and players) sharing one game environment.
+ */
+public class Game implements Runnable {
+
+    public final Env env;
+    public final Table table;
+    public final Dealer dealer;
+    public final Player[] players;
+
+    /**
+     * Creates the game entities.
+     *
+     * @param env     - the game environment (one per game).
+     * @param players - the array to fill with the players (may already be referenced by the user interface).
+     */
+    public Game(Env env, Player[] players) {
+        this.env = env;
+        this.players = players;
+        table = new Table(env);
+        dealer = new Dealer(env, table, players);
+        for (int i = 0; i < players.length; i++)
+            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+    }
+
+    /**
+     * Runs the game to completion on the calling thread (the calling thread becomes the dealer thread).
+     */
+    @Override
+    public void run() {
+        dealer.run();
+    }
+
+    /**
+     * Called when the game should be terminated due to an external event.
+     */
+    public void terminate() {
+        dealer.terminate();
+    }
+
+    /**
+     * @return - the current score of each player.
+     */
+    public int[] scores() {
+        return Arrays.stream(players).mapToInt(Player::getScore).toArray();
+    }
+}
@@ -0,0 +1,599 @@
+package bguspl.set;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Offline analytics of finished games, from their game journals (see GameJournal) or their text logs.
+ * The files are memory-mapped and streamed once, the games are analyzed in parallel, and each game is analyzed in
+ * memory proportional to its number of players and slots (not to its length).
+ * Writes one CSV row per game and player: the player's claims, points, penalties, accuracy and reaction time
+ * percentiles (from the time the last of the claimed cards was dealt to the claim), and the game's duration,
+ * reshuffles and dead-table time (the time the table held no legal set).
+ * A log must hold a single game (the logs of a game server interleave its games). Logs have no claims, so only the
+ * claims that scored or were penalized are counted there (inferred from the scores and the freezes), and the table
+ * changes are logged at FINE, so the log level must be FINE or finer.
+ * Usage: GameAnalytics [-c config file] [-o csv file] [journal/log files or directories (default ./journal/ ./logs/)]
+ */
+public class GameAnalytics {
+
+    static final String HEADER = "game,source,player,claims,points,penalties,accuracy,reaction_p50_ms,"
+            + "reaction_p90_ms,reaction_p99_ms,game_seconds,reshuffles,reshuffles_per_minute,dead_table_seconds";
+
+    /**
+     * The largest region of a log mapped at once.
+     */
+    private static final long WINDOW = 1L << 30;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String configFile = "config.properties";
+        Path output = null;
+        List<Path> inputs = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-c") && i + 1 < args.length) configFile = args[++i];
+            else if (args[i].equals("-o") && i + 1 < args.length) output = Paths.get(args[++i]);
+            else inputs.add(Paths.get(args[i]));
+        }
+        if (inputs.isEmpty()) inputs.addAll(Arrays.asList(Paths.get("./journal/"), Paths.get("./logs/")));
+
+        Config config = new Config(Logger.getAnonymousLogger(), configFile);
+        Map<String, List<Path>> games = games(inputs);
+        long start = System.currentTimeMillis();
+        ExecutorService pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors());
+        List<Future<GameStats>> results = new ArrayList<>();
+        for (Map.Entry<String, List<Path>> game : games.entrySet())
+            results.add(pool.submit(() -> analyze(config, game.getKey(), game.getValue())));
+        pool.shutdown();
+
+        try (PrintWriter out = new PrintWriter(new BufferedWriter(output == null
+                ? new OutputStreamWriter(System.out, StandardCharsets.UTF_8)
+                : Files.newBufferedWriter(output, StandardCharsets.UTF_8)))) {
+            out.println(HEADER);
+            for (Future<GameStats> result : results) {
+                try {
+                    result.get().writeCsv(out);
+                } catch (ExecutionException e) {
+                    System.err.println("skipping a game: " + e.getCause());
+                }
+            }
+        }
+        pool.awaitTermination(1, TimeUnit.MINUTES);
+        System.err.println("analyzed " + games.size() + " games in " + (System.currentTimeMillis() - start) + " ms");
+    }
+
+    /**
+     * Groups the input files by game: a log is a game, and so are the segments of a journal (in segment order).
+     *
+     * @param inputs - files and directories.
+     * @return - the files of each game, by game name.
+     */
+    static Map<String, List<Path>> games(List<Path> inputs) throws IOException {
+        Map<String, TreeMap<Integer, Path>> games = new TreeMap<>();
+        for (Path input : inputs) {
+            if (!Files.exists(input)) continue;
+            List<Path> files;
+            try (Stream<Path> walk = Files.walk(input)) {
+                files = walk.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+            }
+            for (Path file : files) {
+                String name = file.toString();
+                if (name.endsWith(GameJournal.SUFFIX)) {
+                    String base = name.substring(0, name.length() - GameJournal.SUFFIX.length());
+                    int dot = base.lastIndexOf('.');
+                    int segment = Integer.parseInt(base.substring(dot + 1));
+                    games.computeIfAbsent(base.substring(0, dot), k -> new TreeMap<>()).put(segment, file);
+                } else if (name.endsWith(".log")) {
+                    games.computeIfAbsent(name, k -> new TreeMap<>()).put(0, file);
+                }
+            }
+        }
+        Map<String, List<Path>> result = new TreeMap<>();
+        games.forEach((game, segments) -> result.put(game, new ArrayList<>(segments.values())));
+        return result;
+    }
+
+    /**
+     * Analyzes the files of a game.
+     */
+    static GameStats analyze(Config config, String game, List<Path> files) throws IOException {
+        boolean journal = files.get(0).toString().endsWith(GameJournal.SUFFIX);
+        GameStats stats = new GameStats(config, game, journal ? "journal" : "log");
+        if (journal) {
+            for (Path segment : files)
+                GameJournal.read(segment, stats::journal);
+        } else {
+            for (Path log : files)
+                readLog(log, stats);
+        }
+        stats.end();
+        return stats;
+    }
+
+    /**
+     * Streams the lines of a log through the game statistics (a window of the file is mapped at a time).
+     */
+    static void readLog(Path file, GameStats stats) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            LogLine line = new LogLine();
+            long position = 0;
+            while (position < size) {
+                long length = Math.min(WINDOW, size - position);
+                MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                int start = 0;
+                for (int i = 0; i < buffer.limit(); i++) {
+                    if (buffer.get(i) != '\n') continue;
+                    if (line.parse(buffer, start, i)) stats.log(line);
+                    start = i + 1;
+                }
+                if (position + length == size) {
+                    if (start < buffer.limit() && line.parse(buffer, start, buffer.limit())) stats.log(line);
+                    break;
+                }
+                if (start == 0) throw new IOException(file + ": line longer than " + WINDOW + " bytes");
+                position += start; // the partial last line is mapped again with the next window
+            }
+        }
+    }
+
+    /**
+     * A parsed log line of the user interface decorator: "[HH:mm:ss.SSS] [LEVEL  ] message". The line is parsed in
+     * place, without decoding it to a string.
+     */
+    static final class LogLine {
+
+        private static final byte[] PLACING_CARD = ascii("placing card ");
+        private static final byte[] IN_SLOT = ascii(" in slot ");
+        private static final byte[] REMOVING_CARD = ascii("removing card from slot ");
+        private static final byte[] PLAYER = ascii("player ");
+        private static final byte[] PLACING_TOKEN = ascii(" placing token on slot ");
+        private static final byte[] REMOVING_PLAYER = ascii("removing player ");
+        private static final byte[] TOKEN_FROM_SLOT = ascii(" token from slot ");
+        private static final byte[] REMOVING_TOKENS = ascii("removing tokens from slot ");
+        private static final byte[] REMOVING_ALL_TOKENS = ascii("removing all tokens");
+        private static final byte[] SETTING_PLAYER = ascii("setting player ");
+        private static final byte[] SCORE_TO = ascii(" score to ");
+        private static final byte[] FREEZE_TO = ascii(" freeze to ");
+
+        enum Kind {CARD_PLACED, CARD_REMOVED, TOKEN_PLACED, TOKEN_REMOVED, TOKENS_REMOVED, SCORE, FREEZE}
+
+        /**
+         * The parsed line: its time (milliseconds of the day), kind and values (-1 if none).
+         */
+        long millis;
+        Kind kind;
+        int player;
+        int slot;
+        long value;
+
+        private MappedByteBuffer buffer;
+        private int position;
+        private int end;
+
+        /**
+         * @return - true iff the line is a user interface event (the fields hold it).
+         */
+        boolean parse(MappedByteBuffer buffer, int start, int end) {
+            this.buffer = buffer;
+            this.end = end > start && buffer.get(end - 1) == '\r' ? end - 1 : end;
+            if (this.end - start < 16 || buffer.get(start) != '[' || buffer.get(start + 13) != ']') return false;
+            position = start + 1;
+            long hours = digits(2);
+            position++;
+            long minutes = digits(2);
+            position++;
+            long seconds = digits(2);
+            position++;
+            long fraction = digits(3);
+            if (hours < 0 || minutes < 0 || seconds < 0 || fraction < 0) return false;
+            millis = ((hours * 60 + minutes) * 60 + seconds) * 1000 + fraction;
+            // skip the level
+            position = start + 15;
+            while (position < this.end && buffer.get(position) != ']') position++;
+            position += 2;
+            if (position > this.end) return false;
+            player = -1;
+            slot = -1;
+            value = -1;
+            return message();
+        }
+
+        private boolean message() {
+            int mark = position;
+            if (skip(PLACING_CARD)) {
+                kind = Kind.CARD_PLACED;
+                value = number();
+                return skip(IN_SLOT) && (slot = (int) number()) >= 0;
+            }
+            if (skip(REMOVING_CARD)) {
+                kind = Kind.CARD_REMOVED;
+                return (slot = (int) number()) >= 0;
+            }
+            if (skip(PLAYER)) {
+                kind = Kind.TOKEN_PLACED;
+                player = (int) number() - 1;
+                return skip(PLACING_TOKEN) && (slot = (int) number()) >= 0;
+            }
+            if (skip(REMOVING_PLAYER)) {
+                kind = Kind.TOKEN_REMOVED;
+                player = (int) number() - 1;
+                return skip(TOKEN_FROM_SLOT) && (slot = (int) number()) >= 0;
+            }
+            if (skip(REMOVING_TOKENS)) {
+                kind = Kind.TOKENS_REMOVED;
+                return (slot = (int) number()) >= 0;
+            }
+            if (skip(REMOVING_ALL_TOKENS)) {
+                kind = Kind.TOKENS_REMOVED;
+                return true;
+            }
+            if (skip(SETTING_PLAYER)) {
+                player = (int) number() - 1;
+                mark = position;
+                if (skip(SCORE_TO)) kind = Kind.SCORE;
+                else if (skip(FREEZE_TO)) kind = Kind.FREEZE;
+                else return false;
+                return (value = number()) >= 0 || kind == Kind.FREEZE;
+            }
+            position = mark;
+            return false;
+        }
+
+        private boolean skip(byte[] literal) {
+            if (end - position < literal.length) return false;
+            for (int i = 0; i < literal.length; i++)
+                if (buffer.get(position + i) != literal[i]) return false;
+            position += literal.length;
+            return true;
+        }
+
+        /**
+         * @return - the (possibly negative) number at the position, or -1 if there is none.
+         */
+        private long number() {
+            boolean negative = position < end && buffer.get(position) == '-';
+            if (negative) position++;
+            long number = 0;
+            int start = position;
+            while (position < end && buffer.get(position) >= '0' && buffer.get(position) <= '9')
+                number = number * 10 + (buffer.get(position++) - '0');
+            if (position == start) return -1;
+            return negative ? -number : number;
+        }
+
+        private long digits(int count) {
+            long number = 0;
+            for (int i = 0; i < count; i++, position++) {
+                byte b = buffer.get(position);
+                if (b < '0' || b > '9') return -1;
+                number = number * 10 + (b - '0');
+            }
+            return number;
+        }
+
+        private static byte[] ascii(String text) {
+            return text.getBytes(StandardCharsets.US_ASCII);
+        }
+    }
+
+    /**
+     * The statistics of one game, updated event by event.
+     */
+    static final class GameStats {
+
+        private static final long DAY_NANOS = TimeUnit.DAYS.toNanos(1);
+
+        /**
+         * The journaled verdicts of points and penalties (ordinals of Player.DealerRespond).
+         */
+        private static final int POINT = 0;
+        private static final int PENALTY = 1;
+
+        final String game;
+        final String source;
+        private final Config config;
+        private final Util util;
+
+        /**
+         * The card in each slot (-1 if none), when it was dealt, and the number of cards on the table.
+         */
+        private int[] cards;
+        private long[] dealtAt;
+        private int onTable;
+
+        /**
+         * Whether the table holds a legal set (recomputed after card changes), and the time it held none.
+         */
+        private boolean hasSet;
+        private boolean cardsChanged;
+        private long deadNanos;
+
+        private long first = -1;
+        private long last;
+        private long reshuffles;
+
+        /**
+         * Per player: the claims, points and penalties, the reaction times, and the pending claim (its time and the
+         * time the last of its cards was dealt, -1 if none).
+         */
+        private int players;
+        private long[] claims = new long[0];
+        private long[] points = new long[0];
+        private long[] penalties = new long[0];
+        private LatencyHistogram[] reactions = new LatencyHistogram[0];
+        private long[] claimTime = new long[0];
+        private long[] claimDealt = new long[0];
+
+        /**
+         * Log only: the tokens of each player, whether the player scored since its last freeze ended, and whether it
+         * is frozen.
+         */
+        private BitSet[] tokens = new BitSet[0];
+        private boolean[] scored = new boolean[0];
+        private boolean[] frozen = new boolean[0];
+
+        GameStats(Config config, String game, String source) {
+            this.config = config;
+            this.util = new UtilImpl(config);
+            this.game = game;
+            this.source = source;
+            cards = new int[config.tableSize];
+            dealtAt = new long[config.tableSize];
+            Arrays.fill(cards, -1);
+        }
+
+        /**
+         * Applies a journal record (see GameJournal.Visitor).
+         */
+        void journal(long time, GameJournal.Event event, int player, int slot, int value, long extra) {
+            advance(time);
+            switch (event) {
+                case CARD_PLACED:
+                    cardPlaced(time, slot, value);
+                    break;
+                case CARD_REMOVED:
+                    cardRemoved(slot);
+                    break;
+                case CLAIM:
+                    ensurePlayer(player);
+                    if (claimTime[player] < 0) claimTime[player] = time;
+                    claimDealt[player] = Math.max(claimDealt[player], slot < cards.length ? dealtAt[slot] : 0);
+                    break;
+                case VERDICT:
+                    ensurePlayer(player);
+                    claims[player]++;
+                    if (value == POINT) verdict(player, true);
+                    else if (value == PENALTY) verdict(player, false);
+                    else claimTime[player] = -1;
+                    break;
+                case RESHUFFLE:
+                    reshuffles++;
+                    break;
+                default:
+                    break;
+            }
+            updateSet();
+        }
+
+        /**
+         * Applies a log line.
+         */
+        void log(LogLine line) {
+            long time = TimeUnit.MILLISECONDS.toNanos(line.millis);
+            if (first >= 0) {
+                while (time < last - DAY_NANOS / 2) time += DAY_NANOS; // past midnight
+            }
+            advance(time);
+            switch (line.kind) {
+                case CARD_PLACED:
+                    cardPlaced(time, line.slot, (int) line.value);
+                    break;
+                case CARD_REMOVED:
+                    cardRemoved(line.slot);
+                    if (onTable == 0) reshuffles++;
+                    break;
+                case TOKEN_PLACED:
+                    ensurePlayer(line.player);
+                    tokens[line.player].set(line.slot);
+                    if (tokens[line.player].cardinality() == config.featureSize) {
+                        // the last token of a claim
+                        claimTime[line.player] = time;
+                        claimDealt[line.player] = 0;
+                        BitSet claimed = tokens[line.player];
+                        for (int s = claimed.nextSetBit(0); s >= 0 && s < cards.length; s = claimed.nextSetBit(s + 1))
+                            claimDealt[line.player] = Math.max(claimDealt[line.player], dealtAt[s]);
+                    }
+                    break;
+                case TOKEN_REMOVED:
+                    ensurePlayer(line.player);
+                    tokens[line.player].clear(line.slot);
+                    break;
+                case TOKENS_REMOVED:
+                    for (int player = 0; player < players; player++) {
+                        if (line.slot < 0) tokens[player].clear();
+                        else tokens[player].clear(line.slot);
+                    }
+                    break;
+                case SCORE:
+                    ensurePlayer(line.player);
+                    claims[line.player]++;
+                    verdict(line.player, true);
+                    scored[line.player] = true;
+                    break;
+                case FREEZE:
+                    // a freeze that does not follow a point is a penalty (the countdown of a freeze is logged too)
+                    ensurePlayer(line.player);
+                    if (line.value > 0) {
+                        if (!frozen[line.player] && !scored[line.player]) {
+                            claims[line.player]++;
+                            verdict(line.player, false);
+                        }
+                        frozen[line.player] = true;
+                    } else {
+                        frozen[line.player] = false;
+                        scored[line.player] = false;
+                    }
+                    break;
+            }
+            updateSet();
+        }
+
+        private void advance(long time) {
+            if (first < 0) {
+                first = time;
+                last = time;
+            } else if (time > last) {
+                if (!hasSet) deadNanos += time - last;
+                last = time;
+            }
+        }
+
+        private void cardPlaced(long time, int slot, int card) {
+            ensureSlot(slot);
+            if (cards[slot] < 0) onTable++;
+            cards[slot] = card;
+            dealtAt[slot] = time;
+            cardsChanged = true;
+        }
+
+        private void cardRemoved(int slot) {
+            ensureSlot(slot);
+            if (cards[slot] >= 0) onTable--;
+            cards[slot] = -1;
+            cardsChanged = true;
+        }
+
+        private void verdict(int player, boolean point) {
+            if (point) points[player]++;
+            else penalties[player]++;
+            if (claimTime[player] >= 0) reactions[player].record(Math.max(0, claimTime[player] - claimDealt[player]));
+            claimTime[player] = -1;
+        }
+
+        private void updateSet() {
+            if (!cardsChanged) return;
+            cardsChanged = false;
+            List<Integer> table = new ArrayList<>(onTable);
+            for (int card : cards)
+                if (card >= 0 && card < config.deckSize) table.add(card);
+            hasSet = table.size() >= config.featureSize && !util.findSets(table, 1).isEmpty();
+        }
+
+        private void ensureSlot(int slot) {
+            if (slot < cards.length) return;
+            int size = Math.max(slot + 1, cards.length * 2);
+            int old = cards.length;
+            cards = Arrays.copyOf(cards, size);
+            Arrays.fill(cards, old, size, -1);
+            dealtAt = Arrays.copyOf(dealtAt, size);
+        }
+
+        private void ensurePlayer(int player) {
+            if (player < players) return;
+            int size = player + 1;
+            claims = Arrays.copyOf(claims, size);
+            points = Arrays.copyOf(points, size);
+            penalties = Arrays.copyOf(penalties, size);
+            reactions = Arrays.copyOf(reactions, size);
+            claimTime = Arrays.copyOf(claimTime, size);
+            claimDealt = Arrays.copyOf(claimDealt, size);
+            tokens = Arrays.copyOf(tokens, size);
+            scored = Arrays.copyOf(scored, size);
+            frozen = Arrays.copyOf(frozen, size);
+            for (int i = players; i < size; i++) {
+                reactions[i] = new LatencyHistogram();
+                claimTime[i] = -1;
+                tokens[i] = new BitSet();
+            }
+            players = size;
+        }
+
+        void end() {
+            if (first < 0) first = 0;
+        }
+
+        int players() {
+            return players;
+        }
+
+        long claims(int player) {
+            return claims[player];
+        }
+
+        long points(int player) {
+            return points[player];
+        }
+
+        long penalties(int player) {
+            return penalties[player];
+        }
+
+        LatencyHistogram reactions(int player) {
+            return reactions[player];
+        }
+
+        long reshuffles() {
+            return reshuffles;
+        }
+
+        long durationNanos() {
+            return last - first;
+        }
+
+        long deadNanos() {
+            return deadNanos;
+        }
+
+        void writeCsv(PrintWriter out) {
+            double minutes = durationNanos() / (double) TimeUnit.MINUTES.toNanos(1);
+            for (int player = 0; player < players; player++) {
+                long adjudicated = points[player] + penalties[player];
+                out.println(csv(game) + ',' + source + ',' + (player + 1) + ',' + claims[player] + ',' + points[player]
+                        + ',' + penalties[player] + ',' + decimal(adjudicated == 0 ? 0 : points[player] / (double) adjudicated)
+                        + ',' + millis(reactions[player].percentileNanos(50)) + ',' + millis(reactions[player].percentileNanos(90))
+                        + ',' + millis(reactions[player].percentileNanos(99)) + ',' + seconds(durationNanos())
+                        + ',' + reshuffles + ',' + decimal(minutes == 0 ? 0 : reshuffles / minutes) + ',' + seconds(deadNanos));
+            }
+        }
+
+        private static String csv(String value) {
+            return value.contains(",") || value.contains("\"") ? '"' + value.replace("\"", "\"\"") + '"' : value;
+        }
+
+        private static String millis(long nanos) {
+            return decimal(nanos / (double) TimeUnit.MILLISECONDS.toNanos(1));
+        }
+
+        private static String seconds(long nanos) {
+            return decimal(nanos / (double) TimeUnit.SECONDS.toNanos(1));
+        }
+
+        private static String decimal(double value) {
+            return String.format(Locale.ROOT, "%.3f", value);
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package bguspl.set;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * A binary journal of the game events: fixed-size records appended to memory-mapped segment files, so the games can
+ * be analyzed offline without parsing the log.
+ * Appending is lock-free: a record claims its index with one atomic increment and is written straight into the
+ * mapped segment (only the thread that crosses into a new segment maps it, under a lock).
+ * <p>
+ * Every segment starts with a header (one record long): magic "SETJ", version, record size, segment number, the
+ * journal start time (System.currentTimeMillis) and nanoTime. Every record is: the time since the journal start in
+ * nanoseconds (long), player (int), slot (int), value (int), event type (int, 0 for no record) and extra (long).
+ * A record with event type 0 was never written: it is past the last record appended to the segment, or its writer
+ * claimed it and did not finish writing it (e.g. the game crashed), while records claimed after it were written. The
+ * reader skips such records through the end of the segment.
+ */
+public class GameJournal {
+
+    /**
+     * The journaled events. The meaning of the player, slot, value and extra fields of each:
+     * CARD_PLACED/CARD_REMOVED: -1, slot, card, table version;
+     * TOKEN_PLACED/TOKEN_REMOVED: player, slot, card, 0;
+     * CLAIM (one record per claimed slot): player, slot, card, key press time (System.nanoTime; the adjudication time
+     * in the event loop engine);
+     * VERDICT: player, -1, Player.DealerRespond ordinal, key press time of the claim;
+     * SCORE: player, -1, new score, 0;
+     * RESHUFFLE: -1, -1, cards in the deck, 0.
+     */
+    public enum Event {
+        CARD_PLACED, CARD_REMOVED, TOKEN_PLACED, TOKEN_REMOVED, CLAIM, VERDICT, SCORE, RESHUFFLE;
+
+        private static final Event[] values = values();
+
+        int type() {
+            return ordinal() + 1;
+        }
+
+        static Event of(int type) {
+            return type > 0 && type <= values.length ? values[type - 1] : null;
+        }
+    }
+
+    /**
+     * Receives the records of a journal segment.
+     */
+    public interface Visitor {
+        void record(long time, Event event, int player, int slot, int value, long extra);
+    }
+
+    static final int MAGIC = 0x5345544A; // "SETJ"
+    static final int VERSION = 1;
+    static final int RECORD_SIZE = 32;
+    static final String SUFFIX = ".journal";
+
+    private static final GameJournal DISABLED = new GameJournal();
+    private static final AtomicInteger journals = new AtomicInteger();
+
+    private final String prefix;
+    private final long startMillis;
+    private final long startNanos;
+    private final long segmentBytes;
+    private final long recordsPerSegment;
+
+    /**
+     * The index of the next record, the number of records lost (written by a thread that fell more than a segment
+     * behind), and the last mapped segment.
+     */
+    private final AtomicLong next = new AtomicLong();
+    private final AtomicLong lost = new AtomicLong();
+    private volatile Segment current;
+
+    /**
+     * A mapped segment, and the one before it (for threads still writing their last records there).
+     */
+    private static final class Segment {
+        final long number;
+        final MappedByteBuffer buffer;
+        volatile Segment previous;
+
+        Segment(long number, MappedByteBuffer buffer, Segment previous) {
+            this.number = number;
+            this.buffer = buffer;
+            this.previous = previous;
+        }
+    }
+
+    private GameJournal() {
+        prefix = null;
+        startMillis = 0;
+        startNanos = 0;
+        segmentBytes = 0;
+        recordsPerSegment = 0;
+    }
+
+    /**
+     * @param prefix       - the path of the segment files, without the segment number and suffix.
+     * @param segmentBytes - the size of each segment file.
+     */
+    GameJournal(String prefix, long segmentBytes) throws IOException {
+        this.prefix = prefix;
+        this.startMillis = System.currentTimeMillis();
+        this.startNanos = System.nanoTime();
+        this.recordsPerSegment = Math.max(1, segmentBytes / RECORD_SIZE - 1);
+        this.segmentBytes = (recordsPerSegment + 1) * RECORD_SIZE;
+        this.current = map(0, null);
+    }
+
+    /**
+     * @return - a journal that records nothing.
+     */
+    public static GameJournal disabled() {
+        return DISABLED;
+    }
+
+    /**
+     * Opens a new journal in config.journalDirectory (or a disabled journal, if there is no directory).
+     *
+     * @param logger - for reporting a journal that cannot be created.
+     * @param config - the game configuration.
+     */
+    public static GameJournal open(Logger logger, Config config) {
+        if (config.journalDirectory.isEmpty()) return DISABLED;
+        //noinspection ResultOfMethodCallIgnored
+        new File(config.journalDirectory).mkdirs();
+        String name = new SimpleDateFormat("M-d_HH-mm-ss").format(new Date()) + "_" + journals.incrementAndGet();
+        try {
+            return new GameJournal(Paths.get(config.journalDirectory, name).toString(), config.journalSegmentBytes);
+        } catch (IOException e) {
+            logger.severe("cannot create the game journal " + name + ": " + e + ", journaling is disabled.");
+            return DISABLED;
+        }
+    }
+
+    /**
+     * @return - true iff the journal records the events.
+     */
+    public boolean isEnabled() {
+        return prefix != null;
+    }
+
+    /**
+     * Appends a record (lock-free, never blocks except when mapping a new segment).
+     *
+     * @param event - the event.
+     * @param player - the player id, -1 if none.
+     * @param slot  - the slot, -1 if none.
+     * @param value - the event value (see Event).
+     * @param extra - the event extra value (see Event).
+     */
+    public void record(Event event, int player, int slot, int value, long extra) {
+        if (prefix == null) return;
+        long index = next.getAndIncrement();
+        Segment segment = segment(index / recordsPerSegment);
+        if (segment == null) {
+            lost.incrementAndGet();
+            return;
+        }
+        int offset = (int) ((index % recordsPerSegment + 1) * RECORD_SIZE);
+        MappedByteBuffer buffer = segment.buffer;
+        buffer.putLong(offset, System.nanoTime() - startNanos);
+        buffer.putInt(offset + 8, player);
+        buffer.putInt(offset + 12, slot);
+        buffer.putInt(offset + 16, value);
+        buffer.putLong(offset + 24, extra);
+        buffer.putInt(offset + 20, event.type()); // last, so a reader never sees a half written record as complete
+    }
+
+    private Segment segment(long number) {
+        Segment segment = current;
+        if (segment.number == number) return segment;
+        if (segment.number > number) {
+            Segment previous = segment.previous;
+            return previous != null && previous.number == number ? previous : null;
+        }
+        return roll(number);
+    }
+
+    /**
+     * Maps the segments up to the number (once, by the first thread that needs them).
+     */
+    private synchronized Segment roll(long number) {
+        Segment segment = current;
+        try {
+            while (segment.number < number) {
+                segment.previous = null; // only the last two segments are written to
+                segment = map(segment.number + 1, segment);
+                current = segment;
+            }
+        } catch (IOException e) {
+            return null;
+        }
+        return segment.number == number ? segment : segment.previous;
+    }
+
+    private Segment map(long number, Segment previous) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(number), StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+            buffer.putInt(0, MAGIC);
+            buffer.putInt(4, VERSION);
+            buffer.putInt(8, RECORD_SIZE);
+            buffer.putInt(12, (int) number);
+            buffer.putLong(16, startMillis);
+            buffer.putLong(24, startNanos);
+            return new Segment(number, buffer, previous);
+        }
+    }
+
+    /**
+     * @return - the file of the segment.
+     */
+    Path segmentPath(long number) {
+        return Paths.get(prefix + "." + number + SUFFIX);
+    }
+
+    /**
+     * @return - the number of records appended so far (including the lost ones).
+     */
+    public long records() {
+        return next.get();
+    }
+
+    /**
+     * @return - the number of records lost because their segment was already closed.
+     */
+    public long lost() {
+        return lost.get();
+    }
+
+    /**
+     * Writes the mapped segments to the disk.
+     */
+    public void close() {
+        if (prefix == null) return;
+        Segment segment = current;
+        Segment previous = segment.previous;
+        if (previous != null) previous.buffer.force();
+        segment.buffer.force();
+    }
+
+    /**
+     * Reads the records of a journal segment file.
+     *
+     * @param file    - the segment file.
+     * @param visitor - receives the records, in the order they were appended.
+     * @return - the journal start time (System.currentTimeMillis) of the segment.
+     * @throws IOException - if the file cannot be read or is not a journal segment.
+     */
+    public static long read(Path file, Visitor visitor) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.limit() < RECORD_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IOException(file + " is not a game journal segment");
+            int recordSize = buffer.getInt(8);
+            for (int offset = recordSize; offset + recordSize <= buffer.limit(); offset += recordSize) {
+                Event event = Event.of(buffer.getInt(offset + 20));
+                if (event == null) continue; // not written (yet): a later record may still be
+                visitor.record(buffer.getLong(offset), event, buffer.getInt(offset + 8), buffer.getInt(offset + 12),
+                        buffer.getInt(offset + 16), buffer.getLong(offset + 24));
+            }
+            return buffer.getLong(16);
+        }
+    }
+}
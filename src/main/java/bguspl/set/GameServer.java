@@ -0,0 +1,213 @@
+package bguspl.set;
+
+import bguspl.set.ex.EventLoopDealer;
+import bguspl.set.ex.Player;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import java.util.logging.Handler;
+import java.util.logging.Logger;
+
+/**
+ * Hosts many independent games in one JVM.
+ * Every game gets its own environment, table, dealer and players, while the configuration, the utilities (and the
+ * card lookup tables behind them) and the thread factory are shared.
+ * With config.eventLoopEngine a game holds no thread of its own: its turns run on a shared pool of
+ * config.serverParallelism loop threads, only when it has events or timers due (see EventLoopDealer.start), so one
+ * loop thread runs the turns of many games, and every submitted game starts right away. Otherwise every game runs on a
+ * dealer thread of its own (virtual, if so configured) and the players get threads of their own, so at most
+ * config.serverMaxGames such games run at once and the other submitted games wait in line for a dealer thread.
+ */
+public class GameServer {
+
+    private final Logger logger;
+    private final Config config;
+    private final Util util;
+    private final UserInterface headless;
+    private final GameThreads threads;
+
+    /**
+     * The threads running the turns of the event loop games.
+     */
+    private final ScheduledExecutorService loops;
+
+    /**
+     * The dealer threads of the threaded games (config.serverMaxGames of them at most) and the games waiting for one.
+     */
+    private final ThreadPoolExecutor dealers;
+
+    /**
+     * The results of the games currently in progress with their terminate actions, and the results of the games not
+     * finished yet.
+     */
+    private final Map<CompletableFuture<int[]>, Runnable> running = new ConcurrentHashMap<>();
+    private final Set<CompletableFuture<int[]>> unfinished = ConcurrentHashMap.newKeySet();
+
+    private final AtomicInteger nextGameId = new AtomicInteger();
+
+    /**
+     * True once the server is shut down (games that did not start yet never start).
+     */
+    private volatile boolean closed;
+
+    public GameServer(Logger logger, Config config, GameThreads threads) {
+        this.logger = logger;
+        this.config = config;
+        this.util = new UtilImpl(config);
+        this.headless = new UserInterfaceDecorator(logger, util, null);
+        this.threads = threads;
+        AtomicInteger nextLoopThread = new AtomicInteger();
+        this.loops = Executors.newScheduledThreadPool(Math.max(1, config.serverParallelism),
+                r -> threads.newThread(r, "game-loop-" + nextLoopThread.incrementAndGet()));
+        AtomicInteger nextDealerThread = new AtomicInteger();
+        int maxGames = Math.max(1, config.serverMaxGames);
+        this.dealers = new ThreadPoolExecutor(maxGames, maxGames, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                r -> threads.newThread(r, "game-dealer-" + nextDealerThread.incrementAndGet()));
+        this.dealers.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Creates a new headless game and starts it (a threaded game starts once less than config.serverMaxGames threaded
+     * games are running).
+     *
+     * @return - the future final scores of the players (completes when the game is over).
+     */
+    public Future<int[]> submit() {
+        int id = nextGameId.incrementAndGet();
+        Env env = new Env(logger, config, headless, util, threads, GameJournal.open(logger, config));
+        CompletableFuture<int[]> result = new CompletableFuture<>();
+        unfinished.add(result);
+        result.whenComplete((scores, failure) -> unfinished.remove(result));
+        if (config.eventLoopEngine) {
+            EventLoopDealer game = new EventLoopDealer(env);
+            Runnable terminate = game::terminate;
+            if (!begin(id, env, terminate, result)) return result;
+            game.start(loops).whenComplete((ignored, failure) -> end(id, env, terminate, game::scores, failure, result));
+        } else {
+            Game game = new Game(env, new Player[config.players]);
+            dealers.execute(() -> play(id, env, game, game::terminate, game::scores, result));
+        }
+        return result;
+    }
+
+    private void play(int id, Env env, Runnable game, Runnable terminate, Supplier<int[]> scores,
+                      CompletableFuture<int[]> result) {
+        if (!begin(id, env, terminate, result)) return;
+        Throwable failure = null;
+        try {
+            game.run();
+        } catch (Throwable e) {
+            failure = e;
+        }
+        end(id, env, terminate, scores, failure, result);
+    }
+
+    /**
+     * Registers a game as running.
+     *
+     * @return - false iff the server is shut down (the game is cancelled and should not start).
+     */
+    private boolean begin(int id, Env env, Runnable terminate, CompletableFuture<int[]> result) {
+        running.put(result, terminate);
+        if (closed) {
+            running.remove(result);
+            env.journal.close();
+            result.cancel(false);
+            return false;
+        }
+        logger.info("game " + id + " starting.");
+        return true;
+    }
+
+    private void end(int id, Env env, Runnable terminate, Supplier<int[]> scores, Throwable failure,
+                     CompletableFuture<int[]> result) {
+        running.remove(result);
+        env.journal.close();
+        if (failure != null) {
+            result.completeExceptionally(failure);
+            return;
+        }
+        int[] finalScores = scores.get();
+        logger.info("game " + id + " finished with scores " + Arrays.toString(finalScores));
+        result.complete(finalScores);
+    }
+
+    /**
+     * @return - the number of games in progress.
+     */
+    public int running() {
+        return running.size();
+    }
+
+    /**
+     * Terminates the games in progress, waits for them to end and cancels the games waiting to start. Stops the
+     * decision pool of the thread factory too.
+     */
+    public void shutdown() throws InterruptedException {
+        closed = true; // a game registering from now on sees it and does not start
+        List<CompletableFuture<int[]>> started = new ArrayList<>(running.keySet());
+        running.values().forEach(Runnable::run);
+        try {
+            CompletableFuture.allOf(started.toArray(new CompletableFuture<?>[0])).get();
+        } catch (ExecutionException | CancellationException e) {
+            // the failure of a game is reported through its own future
+        }
+        dealers.shutdown(); // the waiting games get a dealer thread only to be cancelled
+        dealers.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        loops.shutdownNow();
+        loops.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+        threads.shutdown(); // the decision pool of the computer players
+        for (CompletableFuture<int[]> game : unfinished) game.cancel(false); // the games that never started
+    }
+
+    /**
+     * Runs config.serverGames games and waits for all of them to finish.
+     *
+     * @param args - optional: the configuration file name.
+     */
+    public static void main(String[] args) throws InterruptedException {
+        Logger logger = Main.initLogger();
+        Config config = new Config(logger, args.length > 0 ? args[0] : "config.properties");
+        GameThreads threads = new GameThreads(logger, config);
+        GameServer server = new GameServer(logger, config, threads);
+
+        long start = System.currentTimeMillis();
+        List<Future<int[]>> games = new ArrayList<>(config.serverGames);
+        for (int i = 0; i < config.serverGames; i++)
+            games.add(server.submit());
+
+        int finished = 0;
+        for (Future<int[]> game : games) {
+            try {
+                game.get();
+                finished++;
+            } catch (ExecutionException e) {
+                logger.severe("game failed: " + e.getCause());
+            } catch (CancellationException e) {
+                logger.severe("game cancelled");
+            }
+        }
+        server.shutdown();
+
+        String summary = finished + " games finished in " + (System.currentTimeMillis() - start) + " ms using "
+                + threads.created() + " threads";
+        logger.severe(summary);
+        System.out.println(summary);
+        for (Handler h : logger.getHandlers()) h.flush();
+    }
+}
@@ -0,0 +1,463 @@
+package bguspl.set;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.List;
+import java.util.Locale;
+import java.util.logging.Level;
+
+/**
+ * A columnar file of finished game summaries (one row per game), compact enough for millions of games, where a query
+ * reads only the columns it needs.
+ * <p>
+ * The rows are stored in row groups of up to ROW_GROUP_ROWS rows. In a row group every column is stored separately,
+ * as the zigzag varints of the differences between consecutive values (so repeated and slowly changing values take
+ * a byte). The per player columns (scores, claims, penalties) hold the values of all the players of the game, in
+ * player order; the players column tells how many. The file ends with a footer index: the column names, and the row
+ * count and the offset and length of every column of every row group, followed by the footer length and the magic.
+ * A game is appended by rewriting only the last row group (if it is not full) and the footer, without ever leaving
+ * the file invalid on a crash.
+ */
+public class GameStatsFile {
+
+    static final int MAGIC = 0x53455453; // "SETS"
+    static final int VERSION = 1;
+    static final int ROW_GROUP_ROWS = 4096;
+    static final String SUFFIX = ".stats";
+
+    static final String[] COLUMNS = {"end_time", "duration_ms", "config_hash", "players", "reshuffles", "scores",
+            "claims", "penalties"};
+
+    /**
+     * Serializes the appends of the games of this JVM (the file lock serializes them across processes).
+     */
+    private static final Object appendLock = new Object();
+
+    /**
+     * The summary of a finished game.
+     */
+    public static final class Row {
+        final long endTime;
+        final long durationMillis;
+        final int configHash;
+        final int reshuffles;
+        final int[] scores;
+        final int[] claims;
+        final int[] penalties;
+
+        /**
+         * @param endTime        - the time the game ended (System.currentTimeMillis).
+         * @param durationMillis - the duration of the game.
+         * @param configHash     - the hash of the game configuration.
+         * @param reshuffles     - the number of times the table was cleared.
+         * @param scores         - the score of each player.
+         * @param claims         - the number of claims of each player.
+         * @param penalties      - the number of penalties of each player.
+         */
+        public Row(long endTime, long durationMillis, int configHash, int reshuffles, int[] scores, int[] claims,
+                   int[] penalties) {
+            this.endTime = endTime;
+            this.durationMillis = durationMillis;
+            this.configHash = configHash;
+            this.reshuffles = reshuffles;
+            this.scores = scores;
+            this.claims = claims;
+            this.penalties = penalties;
+        }
+
+        private long[][] values() {
+            long[][] values = new long[COLUMNS.length][];
+            values[0] = new long[]{endTime};
+            values[1] = new long[]{durationMillis};
+            values[2] = new long[]{configHash};
+            values[3] = new long[]{scores.length};
+            values[4] = new long[]{reshuffles};
+            values[5] = Arrays.stream(scores).asLongStream().toArray();
+            values[6] = Arrays.stream(claims).asLongStream().toArray();
+            values[7] = Arrays.stream(penalties).asLongStream().toArray();
+            return values;
+        }
+    }
+
+    /**
+     * Appends the summary of a finished game to today's file in config.statsDirectory (if there is one).
+     * Failures are logged: the statistics never fail a game.
+     *
+     * @param env - the game environment.
+     * @param row - the game summary.
+     */
+    public static void record(Env env, Row row) {
+        if (env.config.statsDirectory.isEmpty()) return;
+        //noinspection ResultOfMethodCallIgnored
+        new File(env.config.statsDirectory).mkdirs();
+        Path file = Paths.get(env.config.statsDirectory,
+                "games-" + new SimpleDateFormat("yyyy-MM-dd").format(new Date(row.endTime)) + SUFFIX);
+        try {
+            append(file, row);
+        } catch (IOException | RuntimeException e) {
+            env.logger.log(Level.SEVERE, "cannot write the game statistics to " + file + ": " + e);
+        }
+    }
+
+    /**
+     * Appends a game summary to a file (created if it does not exist).
+     */
+    public static void append(Path file, Row row) throws IOException {
+        synchronized (appendLock) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                FileLock lock = channel.lock();
+                try {
+                    append(channel, file, row);
+                } finally {
+                    lock.release();
+                }
+            }
+        }
+    }
+
+    /**
+     * Appends a game summary to the locked file. The file stays valid if the process dies at any point: the rewritten
+     * row group and its footer are first written and forced past the end of the file (where nothing refers to yet),
+     * and only then copied over the old row group and forced again, before the copy past the end is truncated.
+     */
+    private static void append(FileChannel channel, Path file, Row row) throws IOException {
+        long size = channel.size();
+        Footer footer = size == 0 || size == 8 && isHeader(channel) ? null : Footer.read(channel);
+        if (footer == null) {
+            footer = new Footer(Arrays.asList(COLUMNS));
+            ByteBuffer header = ByteBuffer.allocate(8);
+            header.putInt(MAGIC).putInt(VERSION);
+            header.flip();
+            channel.truncate(0);
+            footer.end = write(channel, header, 0);
+            size = footer.end;
+        }
+        if (!footer.columns.equals(Arrays.asList(COLUMNS)))
+            throw new IOException(file + " has the columns " + footer.columns);
+
+        // reopen the last row group if it has room for the row, otherwise start a new one
+        List<long[]> values = new ArrayList<>();
+        long start = footer.end;
+        int rows = 0;
+        Group last = footer.groups.isEmpty() ? null : footer.groups.get(footer.groups.size() - 1);
+        if (last != null && last.rows < ROW_GROUP_ROWS) {
+            for (int column = 0; column < COLUMNS.length; column++)
+                values.add(decode(readColumn(channel, last, column)));
+            footer.groups.remove(footer.groups.size() - 1);
+            start = last.offsets[0];
+            rows = last.rows;
+        } else {
+            for (int column = 0; column < COLUMNS.length; column++) values.add(new long[0]);
+        }
+        long[][] added = row.values();
+        ByteBuffer[] columns = new ByteBuffer[COLUMNS.length];
+        int length = 0;
+        for (int column = 0; column < COLUMNS.length; column++) {
+            columns[column] = encode(concat(values.get(column), added[column]));
+            length += columns[column].remaining();
+        }
+
+        // the final place of the row group, and a place past the end of the file that does not overlap it
+        ByteBuffer footerAtStart = footer.with(group(rows + 1, columns, start)).encode();
+        long end = start + length + footerAtStart.remaining();
+        long spare = Math.max(size, end);
+        ByteBuffer footerAtSpare = footer.with(group(rows + 1, columns, spare)).encode();
+        writeGroup(channel, columns, footerAtSpare, spare);
+        channel.force(false);
+        writeGroup(channel, columns, footerAtStart, start);
+        channel.force(false);
+        channel.truncate(end);
+    }
+
+    private static boolean isHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(8);
+        return channel.read(header, 0) == 8 && header.getInt(0) == MAGIC;
+    }
+
+    /**
+     * @return - the location of the encoded columns of a row group written at the position.
+     */
+    private static Group group(int rows, ByteBuffer[] columns, long position) {
+        Group group = new Group(rows, columns.length);
+        for (int column = 0; column < columns.length; column++) {
+            group.offsets[column] = position;
+            group.lengths[column] = columns[column].remaining();
+            position += group.lengths[column];
+        }
+        return group;
+    }
+
+    /**
+     * Writes the encoded columns of a row group and then the footer, at the position (the buffers are not consumed).
+     */
+    private static void writeGroup(FileChannel channel, ByteBuffer[] columns, ByteBuffer footer, long position)
+            throws IOException {
+        for (ByteBuffer column : columns) position += write(channel, column.duplicate(), position);
+        write(channel, footer, position);
+    }
+
+    private static long[] concat(long[] first, long[] second) {
+        long[] all = Arrays.copyOf(first, first.length + second.length);
+        System.arraycopy(second, 0, all, first.length, second.length);
+        return all;
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+        return length;
+    }
+
+    private static ByteBuffer readColumn(FileChannel channel, Group group, int column) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(group.lengths[column]);
+        long position = group.offsets[column];
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("truncated column " + COLUMNS[column]);
+            position += read;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Encodes the values as the zigzag varints of their differences.
+     */
+    static ByteBuffer encode(long[] values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 10);
+        long previous = 0;
+        for (long value : values) {
+            putVarint(buffer, zigzag(value - previous));
+            previous = value;
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    static long[] decode(ByteBuffer buffer) {
+        long[] values = new long[buffer.remaining()];
+        int count = 0;
+        long previous = 0;
+        while (buffer.hasRemaining()) {
+            previous += unzigzag(getVarint(buffer));
+            values[count++] = previous;
+        }
+        return Arrays.copyOf(values, count);
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void putVarint(ByteBuffer buffer, long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    private static long getVarint(ByteBuffer buffer) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = buffer.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw new IllegalStateException("malformed varint");
+    }
+
+    /**
+     * The location of the columns of a row group.
+     */
+    private static final class Group {
+        final int rows;
+        final long[] offsets;
+        final int[] lengths;
+
+        Group(int rows, int columns) {
+            this.rows = rows;
+            this.offsets = new long[columns];
+            this.lengths = new int[columns];
+        }
+    }
+
+    /**
+     * The footer index, and where the data before it ends.
+     */
+    private static final class Footer {
+        final List<String> columns;
+        final List<Group> groups = new ArrayList<>();
+        long end;
+
+        Footer(List<String> columns) {
+            this.columns = columns;
+        }
+
+        static Footer read(FileChannel channel) throws IOException {
+            long size = channel.size();
+            ByteBuffer tail = ByteBuffer.allocate(8);
+            if (size < 16 || channel.read(tail, size - 8) != 8 || tail.getInt(4) != MAGIC)
+                throw new IOException("not a game statistics file");
+            int length = tail.getInt(0);
+            long position = size - 8 - length;
+            if (length < 0 || position < 8) throw new IOException("not a game statistics file");
+            ByteBuffer buffer = ByteBuffer.allocate(length);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("truncated footer");
+            }
+            buffer.flip();
+            List<String> columns = new ArrayList<>();
+            int columnCount = (int) getVarint(buffer);
+            for (int i = 0; i < columnCount; i++) {
+                byte[] name = new byte[(int) getVarint(buffer)];
+                buffer.get(name);
+                columns.add(new String(name, StandardCharsets.UTF_8));
+            }
+            Footer footer = new Footer(columns);
+            int groupCount = (int) getVarint(buffer);
+            for (int i = 0; i < groupCount; i++) {
+                Group group = new Group((int) getVarint(buffer), columnCount);
+                for (int column = 0; column < columnCount; column++) {
+                    group.offsets[column] = getVarint(buffer);
+                    group.lengths[column] = (int) getVarint(buffer);
+                }
+                footer.groups.add(group);
+            }
+            footer.end = position;
+            return footer;
+        }
+
+        ByteBuffer encode() {
+            int size = 16;
+            for (String column : columns) size += 5 + column.length() * 3;
+            size += groups.size() * (5 + columns.size() * 15);
+            ByteBuffer buffer = ByteBuffer.allocate(size);
+            putVarint(buffer, columns.size());
+            for (String column : columns) {
+                byte[] name = column.getBytes(StandardCharsets.UTF_8);
+                putVarint(buffer, name.length);
+                buffer.put(name);
+            }
+            putVarint(buffer, groups.size());
+            for (Group group : groups) {
+                putVarint(buffer, group.rows);
+                for (int column = 0; column < columns.size(); column++) {
+                    putVarint(buffer, group.offsets[column]);
+                    putVarint(buffer, group.lengths[column]);
+                }
+            }
+            int length = buffer.position();
+            buffer.putInt(length).putInt(MAGIC);
+            buffer.flip();
+            return buffer;
+        }
+
+        int rows() {
+            return groups.stream().mapToInt(group -> group.rows).sum();
+        }
+
+        /**
+         * @return - a footer of the same columns and row groups, and one more row group.
+         */
+        Footer with(Group group) {
+            Footer footer = new Footer(columns);
+            footer.groups.addAll(groups);
+            footer.groups.add(group);
+            footer.end = end;
+            return footer;
+        }
+    }
+
+    /**
+     * Reads the columns of a game statistics file (only the requested columns are read from the disk).
+     */
+    public static final class Reader implements Closeable {
+
+        private final FileChannel channel;
+        private final Footer footer;
+
+        public Reader(Path file) throws IOException {
+            channel = FileChannel.open(file, StandardOpenOption.READ);
+            try {
+                footer = Footer.read(channel);
+            } catch (IOException | RuntimeException e) {
+                channel.close();
+                throw e;
+            }
+        }
+
+        /**
+         * @return - the number of games in the file.
+         */
+        public int rows() {
+            return footer.rows();
+        }
+
+        public List<String> columns() {
+            return footer.columns;
+        }
+
+        /**
+         * @param name - the column name.
+         * @return - the values of the column for all the games (for a per player column: of all the players of all
+         * the games, see the players column).
+         */
+        public long[] column(String name) throws IOException {
+            int column = footer.columns.indexOf(name);
+            if (column < 0) throw new IllegalArgumentException("no column " + name);
+            long[] values = new long[0];
+            for (Group group : footer.groups)
+                values = concat(values, decode(readColumn(channel, group, column)));
+            return values;
+        }
+
+        @Override
+        public void close() throws IOException {
+            channel.close();
+        }
+    }
+
+    /**
+     * Prints the count, sum, mean, min and max of columns of game statistics files.
+     * Usage: GameStatsFile [stats file]... [-c column]... (all the columns by default)
+     */
+    public static void main(String[] args) throws IOException {
+        List<Path> files = new ArrayList<>();
+        List<String> columns = new ArrayList<>();
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("-c") && i + 1 < args.length) columns.add(args[++i]);
+            else files.add(Paths.get(args[i]));
+        }
+        if (columns.isEmpty()) columns.addAll(Arrays.asList(COLUMNS));
+        System.out.println("file,column,count,sum,mean,min,max");
+        for (Path file : files) {
+            try (Reader reader = new Reader(file)) {
+                for (String column : columns) {
+                    long[] values = reader.column(column);
+                    long sum = Arrays.stream(values).sum();
+                    System.out.println(file + "," + column + "," + values.length + "," + sum + ","
+                            + String.format(Locale.ROOT, "%.3f", values.length == 0 ? 0 : sum / (double) values.length)
+                            + "," + Arrays.stream(values).min().orElse(0) + "," + Arrays.stream(values).max().orElse(0));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,136 @@
+package bguspl.set;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * Creates the threads that run the game entities (dealer, players and computer players), and holds the pool running
+ * the decisions of the computer players of its games.
+ * A single instance may be shared by many games running in the same JVM.
+ * When virtual threads are requested and the runtime supports them (Java 21+), the threads are virtual threads;
+ * otherwise they are platform threads.
+ */
+public class GameThreads {
+
+    /**
+     * The number of threads created by this factory so far.
+     */
+    private final AtomicLong created = new AtomicLong();
+
+    /**
+     * (String name, Runnable target) -> Thread creating an unstarted virtual thread, or null for platform threads.
+     */
+    private final MethodHandle virtualFactory;
+
+    /**
+     * The pool running the decisions of the computer players (null until first used, or after a shutdown).
+     */
+    private ThreadPoolExecutor decisions;
+    private final AtomicInteger nextDecisionThread = new AtomicInteger();
+
+    /**
+     * Creates a factory of platform threads.
+     */
+    public GameThreads() {
+        this.virtualFactory = null;
+    }
+
+    /**
+     * Creates a factory of virtual threads if requested by the configuration and supported by the runtime.
+     *
+     * @param logger - used to warn about falling back to platform threads.
+     * @param config - the game configuration.
+     */
+    public GameThreads(Logger logger, Config config) {
+        MethodHandle factory = null;
+        if (config.virtualThreads) {
+            factory = lookupVirtualFactory();
+            if (factory == null)
+                logger.severe("warning: virtual threads are not supported by this runtime (Java 21+ is required), using platform threads.");
+        }
+        this.virtualFactory = factory;
+    }
+
+    /**
+     * Finds Thread.ofVirtual().name(name).unstarted(target) reflectively, since the code is compiled for older runtimes.
+     *
+     * @return - a handle of type (String, Runnable) -> Thread, or null if virtual threads are not supported.
+     */
+    private static MethodHandle lookupVirtualFactory() {
+        try {
+            MethodHandles.Lookup lookup = MethodHandles.publicLookup();
+            Class<?> builder = Class.forName("java.lang.Thread$Builder$OfVirtual");
+            MethodHandle ofVirtual = lookup.findStatic(Thread.class, "ofVirtual", MethodType.methodType(builder));
+            MethodHandle name = lookup.findVirtual(builder, "name", MethodType.methodType(builder, String.class));
+            MethodHandle unstarted = lookup.findVirtual(builder, "unstarted", MethodType.methodType(Thread.class, Runnable.class));
+            MethodHandle named = MethodHandles.collectArguments(name, 0, ofVirtual); // (String) -> builder
+            return MethodHandles.collectArguments(unstarted, 0, named); // (String, Runnable) -> Thread
+        } catch (ReflectiveOperationException | SecurityException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Creates a new (unstarted) thread.
+     *
+     * @param target - the runnable the thread should execute.
+     * @param name   - the name of the thread.
+     * @return - the new thread.
+     */
+    public Thread newThread(Runnable target, String name) {
+        created.incrementAndGet();
+        if (virtualFactory == null)
+            return new Thread(target, name);
+        try {
+            return (Thread) virtualFactory.invokeExact(name, target);
+        } catch (Throwable e) {
+            throw new IllegalStateException("cannot create a virtual thread", e);
+        }
+    }
+
+    /**
+     * Returns the pool running the decisions of the computer players, starting one with a worker per processor if
+     * needed. Its workers are created by this factory and exit after a second without work.
+     *
+     * @return - the decision pool.
+     */
+    public synchronized ThreadPoolExecutor decisions() {
+        if (decisions == null) {
+            int workers = Runtime.getRuntime().availableProcessors();
+            decisions = new ThreadPoolExecutor(workers, workers, 1, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+                    r -> newThread(r, "bot-decisions-" + nextDecisionThread.incrementAndGet()));
+            decisions.allowCoreThreadTimeOut(true);
+        }
+        return decisions;
+    }
+
+    /**
+     * Stops the decision pool (its running decisions are interrupted). Should be called once the games are over.
+     */
+    public synchronized void shutdown() {
+        if (decisions == null) return;
+        decisions.shutdownNow();
+        decisions = null;
+    }
+
+    /**
+     * @return - true iff this factory creates virtual threads.
+     */
+    public boolean isVirtual() {
+        return virtualFactory != null;
+    }
+
+    /**
+     * @return - the number of threads created by this factory so far.
+     */
+    public long created() {
+        return created.get();
+    }
+}
@@ -5,10 +5,14 @@ import bguspl.set.ex.Player;
 import java.awt.event.KeyAdapter;
 import java.awt.event.KeyEvent;
 import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * This class handles the input from the keyboard, translates it to table grid slots and dispatches accordingly.
+ * It runs on the event dispatch thread, so it never blocks: the key presses are offered to the players without
+ * waiting, and logged through the asynchronous log handler (which only queues the record).
  */
 class InputManager extends KeyAdapter {
 
@@ -16,8 +20,19 @@ class InputManager extends KeyAdapter {
     private final Player[] players;
     int[] keyMap = new int[MAX_KEY_CODE + 1];
     int[] keyToSlot = new int[MAX_KEY_CODE + 1];
+
+    /**
+     * The keys that are held down (pressed and not released yet), so auto repeated presses can be told apart.
+     */
+    boolean[] held = new boolean[MAX_KEY_CODE + 1];
     private final Logger logger;
 
+    /**
+     * The time from a key event to its dispatch on the event dispatch thread, and the time the dispatch took.
+     */
+    private final LatencyHistogram queueLatency = new LatencyHistogram();
+    private final LatencyHistogram dispatchTime = new LatencyHistogram();
+
     public InputManager(Logger logger, Config config, Player[] players) {
         this.players = players;
         this.logger = logger;
@@ -35,16 +50,55 @@ class InputManager extends KeyAdapter {
     private void reallocArrays(int keyCode) {
         keyMap = Arrays.copyOf(keyMap, keyCode + 1);
         keyToSlot = Arrays.copyOf(keyToSlot, keyCode + 1);
+        held = Arrays.copyOf(held, keyCode + 1);
     }
 
     @Override
     public void keyPressed(KeyEvent e) {
         // dispatch the key event to the player according to the key map
+        long dispatched = System.nanoTime();
         int keyCode = e.getKeyCode();
+        if (keyCode >= keyMap.length) return;
+        // stamp the press with the time of the key event, on the System.nanoTime clock of the players
+        long queued = TimeUnit.MILLISECONDS.toNanos(Math.max(0, System.currentTimeMillis() - e.getWhen()));
+        long pressTime = dispatched - queued;
+        queueLatency.record(queued);
+        boolean repeat = held[keyCode];
+        held[keyCode] = true;
         int player = keyMap[keyCode] - 1;
-        if (player >= 0){
-            logger.severe("key " + keyCode + " was pressed by player " + (player + 1));
-            players[player].keyPressed(keyToSlot[keyCode]);
+        if (player >= 0) {
+            boolean accepted = players[player].keyPressed(keyToSlot[keyCode], pressTime, repeat);
+            logger.log(Level.FINE, "key {0} was pressed by player {1}{2}",
+                    new Object[]{keyCode, player + 1, accepted ? "" : " (dropped)"});
         }
+        dispatchTime.record(System.nanoTime() - dispatched);
+    }
+
+    @Override
+    public void keyReleased(KeyEvent e) {
+        int keyCode = e.getKeyCode();
+        if (keyCode < held.length) held[keyCode] = false;
+    }
+
+    /**
+     * @return - a summary of the input latencies and the dropped key presses.
+     */
+    String summary() {
+        LatencyHistogram inputLatency = new LatencyHistogram();
+        int dropped = 0;
+        for (Player player : players) {
+            if (player == null) continue;
+            inputLatency.merge(player.getInputLatency());
+            dropped += player.getDroppedKeyPresses();
+        }
+        return "key event to dispatch: " + queueLatency.summary() + ", dispatch: " + dispatchTime.summary()
+                + ", key press to token: " + inputLatency.summary() + ", dropped key presses: " + dropped;
+    }
+
+    /**
+     * Logs the summary of the input latencies.
+     */
+    void shutdown() {
+        logger.info(this::summary);
     }
 }
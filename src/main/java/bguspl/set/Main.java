@@ -1,11 +1,10 @@
 package bguspl.set;
 
-import bguspl.set.ex.Dealer;
 import bguspl.set.ex.Player;
-import bguspl.set.ex.Table;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Paths;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.Calendar;
@@ -17,16 +16,21 @@ import java.util.logging.*;
  */
 public class Main {
 
-    private static Dealer dealer;
+    private static Game game;
     private static Thread mainThread;
 
+    /**
+     * The number of log records that may wait to be written before new records are dropped.
+     */
+    private static final int LOG_BUFFER_SIZE = 1 << 16;
+
     private static boolean xButtonPressed = false;
     private static Logger logger;
 
     public static void xButtonPressed() throws InterruptedException {
         if (logger != null) logger.severe("exit button pressed");
         xButtonPressed = true;
-        if (dealer != null) dealer.terminate();
+        if (game != null) game.terminate();
         mainThread.join();
     }
 
@@ -48,7 +52,7 @@ public class Main {
         Player[] players = new Player[config.players];
         UserInterface ui = null;
         try {
-            ui = new UserInterfaceSwing(logger, config, players);
+            ui = new CoalescingUserInterface(config, new UserInterfaceSwing(logger, config, players));
         } catch (UnsupportedOperationException | IllegalArgumentException e) {
             logger.severe("error creating swing user interface: " + e.getMessage());
             logger.severe("will try to run without user interface");
@@ -57,21 +61,23 @@ public class Main {
         }
         ui = new UserInterfaceDecorator(logger, util, ui);
 
-        Env env = new Env(logger, config, ui, util);
+        Env env = new Env(logger, config, ui, util, new GameThreads(logger, config), GameJournal.open(logger, config));
 
         // create the game entities
-        Table table = new Table(env);
-        dealer = new Dealer(env, table, players);
-        for (int i = 0; i < players.length; i++)
-            players[i] = new Player(env, dealer, table, i, i < env.config.humanPlayers);
+        game = new Game(env, players);
 
         // start the dealer thread
-        ThreadLogger dealerThread = new ThreadLogger(dealer, "dealer", logger);
-        dealerThread.startWithLog();
+        Thread dealerThread = env.threads.newThread(game, "dealer");
+        ThreadLogger.logStart(logger, dealerThread.getName());
+        dealerThread.start();
 
         try {
             // shutdown stuff
-            dealerThread.joinWithLog();
+            try {
+                dealerThread.join();
+            } finally {
+                ThreadLogger.logStop(logger, dealerThread.getName());
+            }
             if (!xButtonPressed && config.endGamePauseMillies > 0) Thread.sleep(config.endGamePauseMillies);
         } catch (InterruptedException ignored) {
         } finally {
@@ -79,19 +85,22 @@ public class Main {
             System.out.println("Thanks for playing... it was fun!");
             ThreadLogger.logStop(logger, Thread.currentThread().getName());
             if (!xButtonPressed) env.ui.dispose();
+            env.journal.close();
+            env.threads.shutdown();
             for (Handler h : logger.getHandlers()) h.flush();
         }
     }
 
-    private static Logger initLogger() {
+    static Logger initLogger() {
 
         //just to make our log file nicer :)
         SimpleDateFormat format = new SimpleDateFormat("M-d_HH-mm-ss");
-        FileHandler handler;
+        Handler handler;
         try {
             //noinspection ResultOfMethodCallIgnored
             new File("./logs/").mkdirs();
-            handler = new FileHandler("./logs/" + format.format(Calendar.getInstance().getTime()) + ".log");
+            // the game threads only queue the records, a background thread formats and writes them
+            handler = new AsyncLogHandler(Paths.get("./logs/", format.format(Calendar.getInstance().getTime()) + ".log"), LOG_BUFFER_SIZE);
         } catch (IOException e) {
             throw new RuntimeException(e);
         }
@@ -106,15 +115,20 @@ public class Main {
 
     public static void setLoggerLevelAndFormat(Logger logger, Level level, String format) {
         Handler[] handlers = logger.getHandlers();
-        if (handlers != null) Arrays.stream(handlers).forEach(h -> h.setFormatter(new SimpleFormatter() {
-            // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
-            @Override
-            public synchronized String format(LogRecord lr) {
-                return String.format(format, new Date(lr.getMillis()),
-                        lr.getLevel().getLocalizedName(), lr.getMessage()
-                );
+        if (handlers != null) Arrays.stream(handlers).forEach(h -> {
+            if (h instanceof AsyncLogHandler) {
+                ((AsyncLogHandler) h).setFormat(format); // formats the records itself, on its writer thread
+                return;
             }
-        }));
+            h.setFormatter(new SimpleFormatter() {
+                // default format (with timestamp)  = "[%1$tF %1$tT] [%2$-7s] %3$s%n";
+                @Override
+                public synchronized String format(LogRecord lr) {
+                    return String.format(format, new Date(lr.getMillis()), lr.getLevel().getLocalizedName(),
+                            AsyncLogHandler.message(lr.getMessage(), lr.getParameters()));
+                }
+            });
+        });
         logger.setLevel(level);
     }
 }
@@ -0,0 +1,211 @@
+package bguspl.set;
+
+import javax.swing.Timer;
+import javax.swing.table.AbstractTableModel;
+import java.util.BitSet;
+
+/**
+ * The scoreboard of a game with many players: the players ranked by score (ties by player id), with their freeze time.
+ * The ranking is kept up to date incrementally: a new score only moves its player past the players it overtook (or that
+ * overtook it). Freeze updates are batched, and the table is notified of them at most config.uiFrameRate times per
+ * second, and only when the displayed seconds change.
+ * Not thread safe: used on the event dispatch thread only.
+ */
+class ScoreboardModel extends AbstractTableModel {
+
+    private static final long serialVersionUID = 1L;
+
+    static final int RANK = 0;
+    static final int PLAYER = 1;
+    static final int SCORE = 2;
+
+    private static final String[] COLUMNS = {"#", "Player", "Score"};
+
+    private final Config config;
+
+    /**
+     * The player in each row, and the row of each player.
+     */
+    private final int[] order;
+    private final int[] rowOf;
+
+    private final int[] scores;
+    private final long[] freezes;
+
+    /**
+     * The rows whose freeze time changed since the table was last notified.
+     */
+    private final BitSet frozenChanged = new BitSet();
+    private final Timer freezeUpdates;
+
+    /**
+     * @param config - the game configuration.
+     */
+    ScoreboardModel(Config config) {
+        this.config = config;
+        order = new int[config.players];
+        rowOf = new int[config.players];
+        for (int player = 0; player < config.players; player++) {
+            order[player] = player;
+            rowOf[player] = player;
+        }
+        scores = new int[config.players];
+        freezes = new long[config.players];
+        freezeUpdates = new Timer(Math.max(1, Math.round(1000f / config.uiFrameRate)), e -> flushFreezes());
+        freezeUpdates.setRepeats(false);
+    }
+
+    @Override
+    public int getRowCount() {
+        return order.length;
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMNS.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        return COLUMNS[column];
+    }
+
+    @Override
+    public Class<?> getColumnClass(int column) {
+        return column == PLAYER ? String.class : Integer.class;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        int player = order[row];
+        switch (column) {
+            case RANK:
+                return rank(row);
+            case PLAYER:
+                return freezes[player] > 0
+                        ? config.playerNames[player] + " (" + freezes[player] / 1000 + ")"
+                        : config.playerNames[player];
+            default:
+                return scores[player];
+        }
+    }
+
+    /**
+     * @return - the player in the row.
+     */
+    int player(int row) {
+        return order[row];
+    }
+
+    /**
+     * @return - true iff the player in the row is frozen.
+     */
+    boolean isFrozen(int row) {
+        return freezes[order[row]] > 0;
+    }
+
+    /**
+     * @return - the rank of the player in the row (players with the same score share a rank).
+     */
+    int rank(int row) {
+        return groupStart(scores[order[row]]) + 1;
+    }
+
+    /**
+     * Updates the score of a player and moves it to its new rank.
+     *
+     * @param player - the player id.
+     * @param score  - the new score.
+     */
+    void setScore(int player, int score) {
+        int old = scores[player];
+        if (old == score) return;
+        int from = rowOf[player];
+        scores[player] = score;
+        int row = from;
+        while (row > 0 && before(player, order[row - 1])) move(order[row - 1], row--);
+        while (row < order.length - 1 && before(order[row + 1], player)) move(order[row + 1], row++);
+        order[row] = player;
+        rowOf[player] = row;
+        // the players with the lower of the two scores changed rank too
+        int last = groupEnd(Math.min(old, score));
+        fireTableRowsUpdated(Math.min(from, row), Math.max(Math.max(from, row), last));
+    }
+
+    /**
+     * Updates the freeze time of a player (the table is notified in the next batch).
+     *
+     * @param player - the player id.
+     * @param millies - the remaining freeze time, 0 or less if the player is not frozen.
+     */
+    void setFreeze(int player, long millies) {
+        long shown = Math.max(0, millies);
+        boolean changed = (shown > 0) != (freezes[player] > 0) || shown / 1000 != freezes[player] / 1000;
+        freezes[player] = shown;
+        if (!changed) return;
+        frozenChanged.set(rowOf[player]);
+        if (!freezeUpdates.isRunning()) freezeUpdates.start();
+    }
+
+    /**
+     * Notifies the table of the rows whose freeze time changed since the last batch.
+     */
+    void flushFreezes() {
+        if (frozenChanged.isEmpty()) return;
+        int first = frozenChanged.nextSetBit(0);
+        int last = frozenChanged.length() - 1;
+        frozenChanged.clear();
+        fireTableRowsUpdated(first, last);
+    }
+
+    /**
+     * Stops the batched freeze updates.
+     */
+    void dispose() {
+        freezeUpdates.stop();
+    }
+
+    /**
+     * Moves a player into the row the updated player is passing (the rows with pending freeze updates follow).
+     */
+    private void move(int player, int row) {
+        if (frozenChanged.get(rowOf[player])) frozenChanged.set(row);
+        order[row] = player;
+        rowOf[player] = row;
+    }
+
+    /**
+     * @return - true iff player a is ranked before player b.
+     */
+    private boolean before(int a, int b) {
+        return scores[a] != scores[b] ? scores[a] > scores[b] : a < b;
+    }
+
+    /**
+     * @return - the first row with the score (or with a lower score, if there is none).
+     */
+    private int groupStart(int score) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (scores[order[middle]] > score) low = middle + 1;
+            else high = middle;
+        }
+        return low;
+    }
+
+    /**
+     * @return - the last row with the score (or with a higher score, if there is none).
+     */
+    private int groupEnd(int score) {
+        int low = 0;
+        int high = order.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (scores[order[middle]] >= score) low = middle + 1;
+            else high = middle;
+        }
+        return Math.max(0, low - 1);
+    }
+}
@@ -25,10 +25,10 @@ public class ThreadLogger extends Thread {
     }
 
     public static void logStart(Logger logger, String name) {
-        logger.info("thread " + name + " starting.");
+        logger.info(() -> "thread " + name + " starting.");
     }
 
     public static void logStop(Logger logger, String name) {
-        logger.info("thread " + name + " terminated.");
+        logger.info(() -> "thread " + name + " terminated.");
     }
 }
@@ -0,0 +1,151 @@
+package bguspl.set;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A hashed timing wheel: a single worker thread runs many short timed tasks (e.g. freeze countdown updates of all the
+ * players of all the games) with a resolution of one tick.
+ * Scheduling and cancelling are lock-free and O(1); the tasks run on the worker thread and must not block.
+ */
+public class TimingWheel {
+
+    /**
+     * A scheduled task.
+     */
+    public static final class Timeout {
+        private final Runnable task;
+        private final long deadline; // in nanoseconds (System.nanoTime)
+        private long rounds; // the number of full wheel rotations left (owned by the worker thread)
+        private Timeout next; // the next timeout in the same bucket (owned by the worker thread)
+        private volatile boolean cancelled;
+
+        private Timeout(Runnable task, long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * Cancels the task (has no effect if the task already ran).
+         */
+        public void cancel() {
+            cancelled = true;
+        }
+
+        public boolean isCancelled() {
+            return cancelled;
+        }
+    }
+
+    private static final class Holder {
+        static final TimingWheel shared = new TimingWheel(10, 512, "timing-wheel");
+    }
+
+    private final long tickNanos;
+    private final Timeout[] buckets;
+    private final int mask;
+
+    /**
+     * Newly scheduled timeouts, moved into the buckets by the worker thread on its next tick.
+     */
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+
+    private final long start = System.nanoTime();
+
+    /**
+     * The number of ticks processed so far (owned by the worker thread).
+     */
+    private long tick;
+
+    /**
+     * Creates a timing wheel and starts its worker (daemon) thread.
+     *
+     * @param tickMillis - the length of a tick (the timer resolution) in milliseconds.
+     * @param wheelSize  - the number of buckets (rounded up to a power of two).
+     * @param name       - the name of the worker thread.
+     */
+    public TimingWheel(long tickMillis, int wheelSize, String name) {
+        tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        int size = Integer.highestOneBit(Math.max(1, wheelSize - 1)) << 1;
+        buckets = new Timeout[size];
+        mask = size - 1;
+        Thread worker = new Thread(this::work, name);
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * @return - the timing wheel shared by all the games in the JVM (10ms ticks).
+     */
+    public static TimingWheel shared() {
+        return Holder.shared;
+    }
+
+    /**
+     * Schedules a task to run (on the worker thread) after a delay.
+     *
+     * @param task        - the task to run.
+     * @param delayMillis - the delay in milliseconds.
+     * @return - a handle that can be used to cancel the task.
+     */
+    public Timeout schedule(Runnable task, long delayMillis) {
+        Timeout timeout = new Timeout(task, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, delayMillis)));
+        pending.add(timeout);
+        return timeout;
+    }
+
+    private void work() {
+        while (true) {
+            long deadline = start + (tick + 1) * tickNanos;
+            long sleep;
+            while ((sleep = deadline - System.nanoTime()) > 0)
+                LockSupport.parkNanos(this, sleep);
+
+            transferPending();
+            expire(tick & mask);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        Timeout timeout;
+        while ((timeout = pending.poll()) != null) {
+            if (timeout.cancelled) continue;
+            long ticks = Math.max(tick, (timeout.deadline - start + tickNanos - 1) / tickNanos - 1);
+            timeout.rounds = (ticks - tick) / buckets.length;
+            int bucket = (int) (ticks & mask);
+            timeout.next = buckets[bucket];
+            buckets[bucket] = timeout;
+        }
+    }
+
+    private void expire(long bucket) {
+        Timeout previous = null;
+        Timeout timeout = buckets[(int) bucket];
+        while (timeout != null) {
+            Timeout next = timeout.next;
+            if (timeout.cancelled || timeout.rounds <= 0) {
+                // unlink
+                if (previous == null) buckets[(int) bucket] = next;
+                else previous.next = next;
+                timeout.next = null;
+                if (!timeout.cancelled) run(timeout);
+            } else {
+                timeout.rounds--;
+                previous = timeout;
+            }
+            timeout = next;
+        }
+    }
+
+    private static void run(Timeout timeout) {
+        try {
+            timeout.task.run();
+        } catch (RuntimeException e) {
+            Thread current = Thread.currentThread();
+            current.getUncaughtExceptionHandler().uncaughtException(current, e);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package bguspl.set;
 
+import java.util.BitSet;
+
 /**
  * This interface contains all methods used to display the graphical user interface.
  */
@@ -43,6 +45,17 @@ public interface UserInterface {
      */
     void removeToken(int player, int slot);
 
+    /**
+     * Replace all player names text in the specified slot with the names of the specified players.
+     * @param slot    - the slot number (for grid; slot = row*row.length + column).
+     * @param players - the ids of the players with a token on the slot (not kept after the call).
+     */
+    default void setTokens(int slot, BitSet players) {
+        removeTokens(slot);
+        for (int player = players.nextSetBit(0); player >= 0; player = players.nextSetBit(player + 1))
+            placeToken(player, slot);
+    }
+
     /**
      * Set the countdown time to the specified number of milliseconds.
      * @param millies - the milliseconds to be shown.
@@ -50,6 +63,14 @@ public interface UserInterface {
      */
     void setCountdown(long millies, boolean warn);
 
+    /**
+     * Start a countdown to the specified deadline: the remaining time is rendered by the user interface itself, so
+     * the countdown does not need further updates.
+     * @param deadline       - the time (System.currentTimeMillis) at which the countdown ends.
+     * @param warningMillies - the remaining time from which the timer is painted in red and displays milliseconds.
+     */
+    void setCountdownDeadline(long deadline, long warningMillies);
+
     /**
      * Set the elapsed time to the specified number of milliseconds.
      * @param millies - the milliseconds to be shown.
@@ -1,10 +1,17 @@
 package bguspl.set;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
+import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
+/**
+ * Logs every call (with the message parameters, so the messages are formatted by the log handler rather than by the
+ * game threads), and forwards it to the user interface (if any). The table changes are logged at FINE, the timer
+ * updates at FINER and the winners at INFO.
+ */
 public class UserInterfaceDecorator implements UserInterface {
 
     private final Logger logger;
@@ -21,70 +28,83 @@ public class UserInterfaceDecorator implements UserInterface {
 
     @Override
     public void placeCard(int card, int slot) {
-        logger.severe("placing card " + card + " in slot " + slot);
+        logger.log(Level.FINE, "placing card {0} in slot {1}", new Object[]{card, slot});
         util.spin();
         if (ui != null) ui.placeCard(card, slot);
     }
 
     @Override
     public void removeCard(int slot) {
-        logger.severe("removing card from slot " + slot);
+        logger.log(Level.FINE, "removing card from slot {0}", slot);
         util.spin();
         if (ui != null) ui.removeCard(slot);
     }
 
     @Override
     public void placeToken(int player, int slot) {
-        logger.severe("player " + (player + 1) + " placing token on slot " + slot);
+        logger.log(Level.FINE, "player {0} placing token on slot {1}", new Object[]{player + 1, slot});
         util.spin();
         if (ui != null) ui.placeToken(player, slot);
     }
 
     @Override
     public void removeTokens() {
-        logger.severe("removing all tokens");
+        logger.fine("removing all tokens");
         util.spin();
         if (ui != null) ui.removeTokens();
     }
 
     @Override
     public void removeTokens(int slot) {
-        logger.severe("removing tokens from slot " + slot);
+        logger.log(Level.FINE, "removing tokens from slot {0}", slot);
         util.spin();
         if (ui != null) ui.removeTokens(slot);
     }
 
     @Override
     public void removeToken(int player, int slot) {
-        logger.severe("removing player " + (player + 1) + " token from slot " + slot);
+        logger.log(Level.FINE, "removing player {0} token from slot {1}", new Object[]{player + 1, slot});
         util.spin();
         if (ui != null) ui.removeToken(player, slot);
     }
 
+    @Override
+    public void setTokens(int slot, BitSet players) {
+        logger.log(Level.FINE, "setting tokens of players {0} on slot {1}", new Object[]{players.toString(), slot});
+        util.spin();
+        if (ui != null) ui.setTokens(slot, players);
+    }
+
     @Override
     public void setCountdown(long millies, boolean warn) {
         if (!warn || millies % 1000L == 0L)
-            logger.severe("updating countdown to " + millies);
+            logger.log(Level.FINER, "updating countdown to {0}", millies);
         if (ui != null) ui.setCountdown(millies, warn);
     }
 
+    @Override
+    public void setCountdownDeadline(long deadline, long warningMillies) {
+        logger.log(Level.FINER, "setting countdown deadline to {0} (warning from {1})", new Object[]{deadline, warningMillies});
+        if (ui != null) ui.setCountdownDeadline(deadline, warningMillies);
+    }
+
     @Override
     public void setElapsed(long millies) {
-        logger.severe("updating elapsed time to " + millies);
+        logger.log(Level.FINER, "updating elapsed time to {0}", millies);
         util.spin();
         if (ui != null) ui.setElapsed(millies);
     }
 
     @Override
     public void setFreeze(int player, long millies) {
-        logger.severe("setting player " + (player + 1) + " freeze to " + millies);
+        logger.log(Level.FINE, "setting player {0} freeze to {1}", new Object[]{player + 1, millies});
         util.spin();
         if (ui != null) ui.setFreeze(player, millies);
     }
 
     @Override
     public void setScore(int player, int score) {
-        logger.severe("setting player " + (player + 1) + " score to " + score);
+        logger.log(Level.FINE, "setting player {0} score to {1}", new Object[]{player + 1, score});
         util.spin();
         if (ui != null) ui.setScore(player, score);
     }
@@ -92,13 +112,13 @@ public class UserInterfaceDecorator implements UserInterface {
     @Override
     public void announceWinner(int[] players) {
         List<String> winners = Arrays.stream(players).mapToObj(id -> "player " + (id + 1)).collect(Collectors.toList());
-        logger.severe("announcing winner(s): " + String.join(", ", winners));
+        logger.info(() -> "announcing winner(s): " + String.join(", ", winners));
         if (ui != null) ui.announceWinner(players);
     }
 
     @Override
     public void dispose() {
-        logger.severe("disposing of user interface elements");
+        logger.fine("disposing of user interface elements");
         if (ui != null) ui.dispose();
     }
 }
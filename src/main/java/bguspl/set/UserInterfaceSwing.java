@@ -3,11 +3,15 @@ package bguspl.set;
 import bguspl.set.ex.Player;
 
 import javax.swing.*;
+import javax.swing.table.DefaultTableCellRenderer;
 import java.awt.*;
-import java.io.FileNotFoundException;
-import java.net.URL;
+import java.awt.image.VolatileImage;
 import java.util.Arrays;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.StringJoiner;
 import java.util.logging.Logger;
 import java.util.stream.Collectors;
 
@@ -22,8 +26,16 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     private final GamePanel gamePanel;
     private final PlayersPanel playersPanel;
     private final WinnerPanel winnerPanel;
+    private final InputManager inputManager;
     private final Config config;
 
+    private final Logger logger;
+
+    /**
+     * The time (System.currentTimeMillis) the window was created, for measuring the time to the first frame.
+     */
+    private final long created = System.currentTimeMillis();
+
     static String intInBaseToPaddedString(int n, int padding, int base) {
         return format("%" + padding + "s", Integer.toString(n, base)).replace(' ', '0');
     }
@@ -31,8 +43,9 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
     public UserInterfaceSwing(Logger logger, Config config, Player[] players) {
 
         this.config = config;
+        this.logger = logger;
         timerPanel = new TimerPanel();
-        gamePanel = new GamePanel();
+        gamePanel = new GamePanel(logger, config, CardImages.create(logger, config), created);
         playersPanel = new PlayersPanel();
         winnerPanel = new WinnerPanel();
 
@@ -63,7 +76,8 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         setLocationRelativeTo(null);
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 
-        addKeyListener(new InputManager(logger, config, players));
+        inputManager = new InputManager(logger, config, players);
+        addKeyListener(inputManager);
         addWindowListener(new WindowManager());
 
         EventQueue.invokeLater(() -> setVisible(true));
@@ -73,6 +87,14 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         private final JLabel timerField;
 
+        /**
+         * Renders the countdown to the deadline (on the event dispatch thread), and the last rendered value.
+         */
+        private final Timer countdown;
+        private long deadline;
+        private long warningMillies;
+        private long rendered = -1;
+
         private String generateTime(long millies, boolean warn) {
             if (warn)
                 return format("Remaining Time: %.2f", (double) millies / 1000.0f);
@@ -88,53 +110,105 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             timerField.setForeground(Color.BLACK);
 
             add(timerField);
+
+            countdown = new Timer(Math.max(1, Math.round(1000f / config.uiFrameRate)), e -> renderCountdown());
+        }
+
+        private void setCountdownDeadline(long deadline, long warningMillies) {
+            this.deadline = deadline;
+            this.warningMillies = warningMillies;
+            rendered = -1;
+            renderCountdown();
+            countdown.start();
+        }
+
+        /**
+         * Updates the label only when the displayed value changes (every second, or every 10 milliseconds during the
+         * warning).
+         */
+        private void renderCountdown() {
+            long millies = Math.max(0, deadline - System.currentTimeMillis());
+            boolean warn = millies < warningMillies;
+            long displayed = warn ? -2 - millies / 10 : millies / 1000;
+            if (displayed != rendered) {
+                rendered = displayed;
+                timerField.setText(generateTime(millies, warn));
+                timerField.setForeground(warn ? Color.RED : Color.BLACK);
+            }
+            if (millies == 0) countdown.stop();
         }
 
         private void setCountdown(long millies, boolean warn) {
+            countdown.stop();
             timerField.setText(generateTime(millies, warn));
             timerField.setForeground(warn ? Color.RED : Color.BLACK);
         }
 
         private void setElapsed(long millies) {
+            countdown.stop();
             timerField.setText("Elapsed time: " + millies / 1000);
         }
     }
 
-    private class GamePanel extends JLayeredPane {
+    static class GamePanel extends JLayeredPane {
 
-        private final Image emptyCard;
-        private final Image[] deck;
-        private final Image[][] grid;
-        private final boolean[][][] playerTokens;
-        private final JLabel[][] tokenText;
+        private static final int TOKEN_TEXT_CACHE_SIZE = 1024;
 
-        private Image loadImageResource(String filename) {
-            URL imageResource = getClass().getClassLoader().getResource(filename);
-            if (imageResource == null)
-                throw new RuntimeException(new FileNotFoundException(filename));
-            return new ImageIcon(imageResource).getImage();
-        }
+        private final Logger logger;
+        private final Config config;
+        private final long created;
 
-        private GamePanel() {
+        private final CardImages images;
+        private final int[][] grid; // the card in each cell (CardImages.EMPTY if none)
+        private boolean painted;
+        private final JLabel[][] tokenText;
 
+        /**
+         * The players with a token on each slot, and the label text of every set of players seen so far (the sets are
+         * cached as keys, so they are never changed after they are put in the cache).
+         */
+        private final BitSet[] slotTokens;
+        private final Map<BitSet, String> tokenTexts;
+
+        /**
+         * The pre-composited card grid (if config.cardBackBuffer), and the cells that changed since it was last drawn.
+         */
+        private VolatileImage cardLayer;
+        private final boolean[][] staleCells;
+
+        /**
+         * @param logger  - the logger.
+         * @param config  - the game configuration.
+         * @param images  - the source of the card images.
+         * @param created - the time (System.currentTimeMillis) the window was created.
+         */
+        GamePanel(Logger logger, Config config, CardImages images, long created) {
+
+            this.logger = logger;
+            this.config = config;
+            this.created = created;
             setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.cellHeight));
 
-            // init deck and load all pictures from png files
-            assert config.featureSize < 10; // otherwise there will be naming conflicts
-
-            // load the image resources
-            deck = new Image[config.deckSize];
-            for (int i = 0; i < config.deckSize; ++i)
-                deck[i] = loadImageResource("cards/" + intInBaseToPaddedString(i, config.featureCount, config.featureSize) + ".png");
-            emptyCard = loadImageResource("cards/empty_card.png");
+            // load the card images in the background (placeholders are painted until they are loaded)
+            this.images = images;
+            images.start(this::cardLoaded);
 
-            grid = new Image[config.rows][config.columns];
+            grid = new int[config.rows][config.columns];
+            staleCells = new boolean[config.rows][config.columns];
             tokenText = new JLabel[config.rows][config.columns];
-            playerTokens = new boolean[config.players][config.rows][config.columns];
+            slotTokens = new BitSet[config.tableSize];
+            for (int slot = 0; slot < config.tableSize; slot++) slotTokens[slot] = new BitSet(config.players);
+            tokenTexts = new LinkedHashMap<BitSet, String>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<BitSet, String> eldest) {
+                    return size() > TOKEN_TEXT_CACHE_SIZE;
+                }
+            };
+            tokenTexts.put(new BitSet(), "");
             for (int row = 0; row < config.rows; row++) {
                 for (int column = 0; column < config.columns; column++) {
                     // init the cards on the table grid as empty cards
-                    grid[row][column] = emptyCard;
+                    grid[row][column] = CardImages.EMPTY;
 
                     // init the JLabel selection overlay
                     tokenText[row][column] = new JLabel("");
@@ -148,27 +222,40 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
-        private void placeCard(int slot, int card) {
+        void placeCard(int slot, int card) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = deck[card];
-            validate();
-            repaint();
+            grid[row][column] = card;
+            repaintCell(row, column);
         }
 
-        private void removeCard(int slot) {
+        void removeCard(int slot) {
             int row = slot / config.columns;
             int column = slot % config.columns;
-            grid[row][column] = emptyCard;
-            validate();
-            repaint();
+            grid[row][column] = CardImages.EMPTY;
+            repaintCell(row, column);
+        }
+
+        /**
+         * Repaints the cells showing the placeholder of a card whose image was just loaded.
+         */
+        private void cardLoaded(int card) {
+            for (int row = 0; row < config.rows; row++)
+                for (int column = 0; column < config.columns; column++)
+                    if (grid[row][column] == card) repaintCell(row, column);
+        }
+
+        /**
+         * Repaints only the changed cell (the card layer is redrawn for this cell only).
+         */
+        private void repaintCell(int row, int column) {
+            staleCells[row][column] = true;
+            repaint(column * config.cellWidth, row * config.cellHeight, config.cellWidth, config.cellHeight);
         }
 
         private void placeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = true;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            slotTokens[slot].set(player);
+            updateTokenText(slot);
         }
 
         private void removeTokens() {
@@ -177,38 +264,92 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void removeTokens(int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            for (int player = 0; player < playerTokens.length; player++) {
-                playerTokens[player][row][column] = false;
-                tokenText[row][column].setText(generatePlayersTokenText(row, column));
-            }
+            slotTokens[slot].clear();
+            updateTokenText(slot);
         }
 
         private void removeToken(int player, int slot) {
-            int row = slot / config.columns;
-            int column = slot % config.columns;
-            playerTokens[player][row][column] = false;
-            tokenText[row][column].setText(generatePlayersTokenText(row, column));
+            slotTokens[slot].clear(player);
+            updateTokenText(slot);
         }
 
-        private String generatePlayersTokenText(int row, int column) {
-            String text = "";
-            for (int player = 0; player < config.players; player++) {
-                if (playerTokens[player][row][column])
-                    text = text.concat(config.playerNames[player] + ", ");
+        void setTokens(int slot, BitSet players) {
+            slotTokens[slot].clear();
+            slotTokens[slot].or(players);
+            updateTokenText(slot);
+        }
+
+        /**
+         * @return - the label text of the players on the slot.
+         */
+        String tokenText(int slot) {
+            return tokenText[slot / config.columns][slot % config.columns].getText();
+        }
+
+        /**
+         * Shows the cached label text of the players on the slot (generated only for a set of players not seen lately).
+         */
+        private void updateTokenText(int slot) {
+            String text = tokenTexts.get(slotTokens[slot]);
+            if (text == null) {
+                text = generatePlayersTokenText(slotTokens[slot]);
+                tokenTexts.put((BitSet) slotTokens[slot].clone(), text);
             }
-            if (text.length() < 2)
-                return "";
-            return text.substring(0, text.length() - 2);
+            JLabel label = tokenText[slot / config.columns][slot % config.columns];
+            if (!text.equals(label.getText())) label.setText(text);
+        }
+
+        private String generatePlayersTokenText(BitSet players) {
+            StringJoiner text = new StringJoiner(", ");
+            for (int player = players.nextSetBit(0); player >= 0; player = players.nextSetBit(player + 1))
+                text.add(config.playerNames[player]);
+            return text.toString();
         }
 
         @Override
         public void paintComponent(Graphics g) {
-            // draw card images
-            for (int row = 0; row < config.rows; row++)
-                for (int column = 0; column < config.columns; column++)
-                    g.drawImage(grid[row][column], (column * config.cellWidth), (row * config.cellHeight), this);
+            if (!painted) {
+                painted = true;
+                logger.info("time to first frame: " + (System.currentTimeMillis() - created) + " ms");
+            }
+            if (config.cardBackBuffer && paintCardLayer(g)) return;
+
+            // draw the card images of the cells in the clip
+            Rectangle clip = g.getClipBounds();
+            if (clip == null) clip = new Rectangle(getWidth(), getHeight());
+            int firstRow = Math.max(0, clip.y / config.cellHeight);
+            int lastRow = Math.min(config.rows - 1, (clip.y + clip.height - 1) / config.cellHeight);
+            int firstColumn = Math.max(0, clip.x / config.cellWidth);
+            int lastColumn = Math.min(config.columns - 1, (clip.x + clip.width - 1) / config.cellWidth);
+            for (int row = firstRow; row <= lastRow; row++)
+                for (int column = firstColumn; column <= lastColumn; column++)
+                    g.drawImage(images.image(grid[row][column]), (column * config.cellWidth), (row * config.cellHeight), this);
+        }
+
+        /**
+         * Draws the stale cells into the card layer, then copies the card layer (only the clip is actually copied).
+         *
+         * @return - false iff there is no card layer (e.g. the panel is not displayable yet).
+         */
+        private boolean paintCardLayer(Graphics g) {
+            do {
+                int status = cardLayer == null ? VolatileImage.IMAGE_INCOMPATIBLE : cardLayer.validate(getGraphicsConfiguration());
+                if (status == VolatileImage.IMAGE_INCOMPATIBLE) {
+                    cardLayer = createVolatileImage(config.columns * config.cellWidth, config.rows * config.cellHeight);
+                    if (cardLayer == null) return false;
+                }
+                boolean redrawAll = status != VolatileImage.IMAGE_OK;
+                Graphics2D layer = cardLayer.createGraphics();
+                for (int row = 0; row < config.rows; row++)
+                    for (int column = 0; column < config.columns; column++) {
+                        if (!redrawAll && !staleCells[row][column]) continue;
+                        layer.drawImage(images.image(grid[row][column]), (column * config.cellWidth), (row * config.cellHeight), this);
+                        staleCells[row][column] = false;
+                    }
+                layer.dispose();
+                g.drawImage(cardLayer, 0, 0, this);
+            } while (cardLayer.contentsLost());
+            return true;
         }
     }
 
@@ -216,7 +357,20 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
         private final JLabel[][] playersTable;
 
+        /**
+         * The ranked scoreboard, used instead of the labels when there are more than config.scoreboardPlayers players
+         * (null otherwise).
+         */
+        private final ScoreboardModel scoreboard;
+
         private PlayersPanel() {
+            if (config.players > config.scoreboardPlayers) {
+                this.playersTable = null;
+                this.scoreboard = new ScoreboardModel(config);
+                createScoreboard();
+                return;
+            }
+            this.scoreboard = null;
             this.setLayout(new GridLayout(2, config.players));
             this.setPreferredSize(new Dimension(config.players * config.playerCellWidth, config.rows * config.playerCellHeight));
             this.playersTable = new JLabel[2][config.players];
@@ -235,7 +389,41 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
             }
         }
 
+        /**
+         * Shows the scoreboard in a scrolling table (which renders the visible rows only), the frozen players in red.
+         */
+        private void createScoreboard() {
+            JTable table = new JTable(scoreboard);
+            table.setFont(new Font("Serif", Font.PLAIN, config.fontSize));
+            table.getTableHeader().setFont(new Font("Serif", Font.BOLD, config.fontSize));
+            table.setRowHeight(config.playerCellHeight);
+            table.setFocusable(false);
+            table.setRowSelectionAllowed(false);
+            table.getTableHeader().setReorderingAllowed(false);
+            table.getColumnModel().getColumn(ScoreboardModel.RANK).setPreferredWidth(config.playerCellWidth / 3);
+            table.getColumnModel().getColumn(ScoreboardModel.PLAYER).setPreferredWidth(config.playerCellWidth);
+            table.getColumnModel().getColumn(ScoreboardModel.SCORE).setPreferredWidth(config.playerCellWidth / 2);
+            table.getColumnModel().getColumn(ScoreboardModel.PLAYER).setCellRenderer(new DefaultTableCellRenderer() {
+                @Override
+                public Component getTableCellRendererComponent(JTable table, Object value, boolean selected, boolean focused, int row, int column) {
+                    super.getTableCellRendererComponent(table, value, selected, focused, row, column);
+                    setForeground(scoreboard.isFrozen(row) ? Color.RED : Color.BLACK);
+                    return this;
+                }
+            });
+
+            JScrollPane scroll = new JScrollPane(table);
+            scroll.setFocusable(false);
+            this.setLayout(new BorderLayout());
+            this.setPreferredSize(new Dimension(config.columns * config.cellWidth, config.rows * config.playerCellHeight * 2));
+            this.add(scroll, BorderLayout.CENTER);
+        }
+
         private void setFreeze(int player, long millies) {
+            if (scoreboard != null) {
+                scoreboard.setFreeze(player, millies);
+                return;
+            }
             if (millies > 0) {
                 this.playersTable[0][player].setText(config.playerNames[player] + " (" + millies / 1000 + ")");
                 this.playersTable[0][player].setForeground(Color.RED);
@@ -246,7 +434,12 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         }
 
         private void setScore(int player, int score) {
-            playersTable[1][player].setText(Integer.toString(score));
+            if (scoreboard != null) scoreboard.setScore(player, score);
+            else playersTable[1][player].setText(Integer.toString(score));
+        }
+
+        private void dispose() {
+            if (scoreboard != null) scoreboard.dispose();
         }
     }
 
@@ -304,11 +497,21 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
         gamePanel.removeToken(player, slot);
     }
 
+    @Override
+    public void setTokens(int slot, BitSet players) {
+        gamePanel.setTokens(slot, players);
+    }
+
     @Override
     public void setCountdown(long millies, boolean warn) {
         timerPanel.setCountdown(millies, warn);
     }
 
+    @Override
+    public void setCountdownDeadline(long deadline, long warningMillies) {
+        timerPanel.setCountdownDeadline(deadline, warningMillies);
+    }
+
     @Override
     public void setElapsed(long millies) {
         timerPanel.setElapsed(millies);
@@ -333,6 +536,9 @@ public class UserInterfaceSwing extends JFrame implements UserInterface {
 
     @Override
     public void dispose() {
+        timerPanel.countdown.stop();
+        playersPanel.dispose();
+        inputManager.shutdown();
         super.dispose();
     }
 }
@@ -13,15 +13,18 @@ public class UtilImpl implements Util {
 
     private final Config config;
 
+    /**
+     * The lookup tables shared by all games with the same deck dimensions.
+     */
+    private final CardIndex index;
+
     public UtilImpl(Config config) {
         this.config = config;
+        this.index = CardIndex.of(config);
     }
 
     private void cardToFeatures(int card, int[] features) {
-        for (int i = config.featureCount - 1; i >= 0; --i) {
-            features[i] = card % config.featureSize;
-            card /= config.featureSize;
-        }
+        index.copyFeatures(card, features);
     }
 
     @Override
@@ -40,6 +43,9 @@ public class UtilImpl implements Util {
 
     @Override
     public boolean testSet(int[] cards) {
+        if (cards.length == 3 && index.hasCompletion())
+            return index.thirdCard(cards[0], cards[1]) == cards[2];
+
         int[][] features = cardsToFeatures(Arrays.copyOf(cards, cards.length));
         for (int i = 0; i < config.featureCount; ++i) {
             boolean sameSame = true, butDifferent = true;
@@ -66,6 +72,9 @@ public class UtilImpl implements Util {
 
     @Override
     public List<int[]> findSets(List<Integer> deck, int count) {
+        if (config.featureSize == 3 && index.hasCompletion())
+            return findSetsByCompletion(deck, count);
+
         LinkedList<int[]> sets = new LinkedList<>();
         int n = deck.size();
         int r = config.featureSize;
@@ -90,6 +99,33 @@ public class UtilImpl implements Util {
         return sets;
     }
 
+    /**
+     * Finds sets in O(n^2) instead of O(n^3): every pair of cards is completed to a set by exactly one card, so only
+     * the presence of that card needs to be checked. The sets are found in the same order as by the general search.
+     */
+    private List<int[]> findSetsByCompletion(List<Integer> deck, int count) {
+        LinkedList<int[]> sets = new LinkedList<>();
+        int n = deck.size();
+        int[] cards = new int[n];
+        int[] position = new int[config.deckSize]; // position of each card in the deck + 1 (0 if not in deck)
+        for (int i = 0; i < n; ++i) {
+            cards[i] = deck.get(i);
+            position[cards[i]] = i + 1;
+        }
+
+        for (int i = 0; i < n; ++i)
+            for (int j = i + 1; j < n; ++j) {
+                int k = position[index.thirdCard(cards[i], cards[j])] - 1;
+                if (k > j) {
+                    int[] set = {cards[i], cards[j], cards[k]};
+                    Arrays.sort(set);
+                    sets.add(set);
+                    if (sets.size() >= count) return sets;
+                }
+            }
+        return sets;
+    }
+
     public void spin() {
         if (config.randomSpinMax <= 0) return;
         long cycles = ThreadLocalRandom.current().nextLong(config.randomSpinMin, config.randomSpinMax);
@@ -0,0 +1,72 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+/**
+ * The in-process bot SPI: a bot decides which slots a computer player should select given the cards on the table.
+ * Bots are hosted by a Player (or an EventLoopDealer) in place of a human; the host calls decide() on a decision
+ * pool whenever the table changes and discards decisions that exceed config.botDecisionBudgetMillis.
+ * Third-party bots need a public no-argument constructor and are named by their class name in config.computerBots.
+ */
+public interface Bot {
+
+    /**
+     * Called once by the host before the first decision.
+     *
+     * @param env    - the game environment.
+     * @param player - the id of the player hosting the bot.
+     */
+    default void start(Env env, int player) {
+    }
+
+    /**
+     * @return - the name of the bot (for reports).
+     */
+    default String name() {
+        return getClass().getSimpleName();
+    }
+
+    /**
+     * Chooses the slots to place the player's tokens on. May be interrupted when it exceeds the decision budget.
+     *
+     * @param snapshot - the cards on the table (immutable).
+     * @return - config.featureSize distinct slots, or null if the bot has nothing to claim on this table.
+     */
+    int[] decide(TableSnapshot snapshot);
+
+    /**
+     * Creates the bot of a computer player: the computer players are assigned the bots of config.computerBots in a
+     * round-robin manner.
+     *
+     * @param env    - the game environment.
+     * @param player - the id of the (computer) player.
+     * @return - the started bot.
+     */
+    static Bot forPlayer(Env env, int player) {
+        String[] bots = env.config.computerBots;
+        Bot bot = create(bots[Math.max(0, player - env.config.humanPlayers) % bots.length]);
+        bot.start(env, player);
+        return bot;
+    }
+
+    /**
+     * Creates a bot by name: "sets", "random", or the fully qualified name of a Bot implementation.
+     *
+     * @param name - the bot name.
+     * @return - the new (not started) bot.
+     */
+    static Bot create(String name) {
+        switch (name) {
+            case "sets":
+                return new SetFinderBot();
+            case "random":
+                return new RandomBot();
+            default:
+                try {
+                    return Class.forName(name).asSubclass(Bot.class).getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException("cannot create bot " + name, e);
+                }
+        }
+    }
+}
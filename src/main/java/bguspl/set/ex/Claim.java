@@ -0,0 +1,81 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * A claim of a player that its tokens form a legal set, and the dealer's verdict on it.
+ * Claims are created by the claiming player and adjudicated by the dealer, which completes the verdict exactly once.
+ */
+final class Claim {
+
+    /**
+     * The id of the claiming player.
+     */
+    final int player;
+
+    /**
+     * The slots of the player's tokens.
+     */
+    final int[] slots;
+
+    /**
+     * The cards on the claimed slots, and the table version they were read from.
+     */
+    final int[] cards;
+    final long tableVersion;
+
+    /**
+     * The table version when the player placed the last of its tokens (the claim is stale if the cards changed since).
+     */
+    final long tokenVersion;
+
+    /**
+     * The time the key completing the claim was pressed, and the time the claim was submitted (System.nanoTime).
+     */
+    final long nanoTime;
+    final long submitTime;
+
+    /**
+     * The order in which the dealer took the claim from the submission queue (set by the dealer).
+     */
+    long sequence;
+
+    /**
+     * The dealer's verdict (completed by the dealer, or cancelled by a player that stopped waiting).
+     */
+    final CompletableFuture<Player.DealerRespond> verdict = new CompletableFuture<>();
+
+    /**
+     * Whether the cards form a legal set (completed by a claim validator, possibly before the dealer gets to the claim).
+     */
+    final CompletableFuture<Boolean> legal = new CompletableFuture<>();
+
+    Claim(int player, int[] slots, long tokenVersion, TableSnapshot snapshot, long nanoTime) {
+        this.player = player;
+        this.slots = slots;
+        this.cards = new int[slots.length];
+        for (int i = 0; i < slots.length; i++) {
+            cards[i] = snapshot.card(slots[i]);
+        }
+        this.tableVersion = snapshot.version;
+        this.tokenVersion = tokenVersion;
+        this.nanoTime = nanoTime;
+        this.submitTime = System.nanoTime();
+    }
+
+    /**
+     * Completes the claim with the verdict.
+     *
+     * @return - false iff the claim was already completed or cancelled.
+     */
+    boolean answer(Player.DealerRespond respond) {
+        return verdict.complete(respond);
+    }
+
+    /**
+     * @return - true iff the claim was already answered or withdrawn.
+     */
+    boolean isDone() {
+        return verdict.isDone();
+    }
+}
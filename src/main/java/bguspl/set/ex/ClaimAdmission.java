@@ -0,0 +1,125 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The admission control in front of the dealer's claim queue: rejects stale claims and claims over the player's claim
+ * rate before they reach the dealer, and keeps track of the queue depth and of the rejections.
+ * The claims of a player are admitted by the claiming player's thread only; the dealer reports the claims it takes.
+ */
+class ClaimAdmission {
+
+    enum Rejection {
+        STALE, RATE_LIMITED
+    }
+
+    private final Env env;
+
+    /**
+     * The token bucket of each player: the claims it may still make, and when the bucket was last refilled
+     * (System.nanoTime).
+     */
+    private final double[] tokens;
+    private final long[] refilled;
+
+    /**
+     * The number of admitted claims the dealer did not take yet, and the maximal number so far.
+     */
+    private final AtomicInteger depth = new AtomicInteger();
+    private final AtomicInteger maxDepth = new AtomicInteger();
+
+    private final AtomicLong admitted = new AtomicLong();
+    private final AtomicLongArray rejections = new AtomicLongArray(Rejection.values().length);
+
+    ClaimAdmission(Env env, int players) {
+        this.env = env;
+        this.tokens = new double[players];
+        this.refilled = new long[players];
+        Arrays.fill(tokens, env.config.claimBurst);
+    }
+
+    /**
+     * Decides whether a claim may be queued for the dealer (called by the claiming player's thread).
+     *
+     * @param claim   - the claim.
+     * @param current - the cards currently on the table.
+     * @return - the reason the claim was rejected, or null if it was admitted.
+     */
+    Rejection admit(Claim claim, TableSnapshot current) {
+        Rejection rejection = check(claim, current);
+        if (rejection != null) {
+            rejections.incrementAndGet(rejection.ordinal());
+            return rejection;
+        }
+        admitted.incrementAndGet();
+        int queued = depth.incrementAndGet();
+        maxDepth.accumulateAndGet(queued, Math::max);
+        return null;
+    }
+
+    private Rejection check(Claim claim, TableSnapshot current) {
+        if (claim.slots.length != env.config.featureSize) return Rejection.STALE;
+        if (claim.tokenVersion != claim.tableVersion || claim.tableVersion != current.version) return Rejection.STALE;
+        for (int card : claim.cards) {
+            if (card < 0) return Rejection.STALE;
+        }
+        return acquire(claim.player, claim.nanoTime) ? null : Rejection.RATE_LIMITED;
+    }
+
+    /**
+     * Takes a token from the player's bucket, if there is one.
+     */
+    private boolean acquire(int player, long now) {
+        double rate = env.config.claimRate;
+        if (rate <= 0) return true;
+        if (refilled[player] != 0) {
+            double elapsedSeconds = (now - refilled[player]) / (double) TimeUnit.SECONDS.toNanos(1);
+            tokens[player] = Math.min(env.config.claimBurst, tokens[player] + elapsedSeconds * rate);
+        }
+        refilled[player] = now;
+        if (tokens[player] < 1) return false;
+        tokens[player]--;
+        return true;
+    }
+
+    /**
+     * Called by the dealer for every admitted claim it takes from the queue.
+     */
+    void taken() {
+        depth.decrementAndGet();
+    }
+
+    /**
+     * @return - the number of admitted claims the dealer did not take yet.
+     */
+    int depth() {
+        return depth.get();
+    }
+
+    int maxDepth() {
+        return maxDepth.get();
+    }
+
+    long admitted() {
+        return admitted.get();
+    }
+
+    long rejections(Rejection rejection) {
+        return rejections.get(rejection.ordinal());
+    }
+
+    /**
+     * @return - a one line summary of the admissions and rejections.
+     */
+    String summary() {
+        return "claims admitted: " + admitted() + ", rejected as stale: " + rejections(Rejection.STALE)
+                + ", rate limited: " + rejections(Rejection.RATE_LIMITED)
+                + ", max queue depth: " + maxDepth();
+    }
+}
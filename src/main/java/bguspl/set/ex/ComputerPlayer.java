@@ -0,0 +1,266 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.LatencyHistogram;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntPredicate;
+import java.util.logging.Level;
+
+/**
+ * The key press simulator of a computer player: whenever the table changes, it asks its bot for the slots to select
+ * (on the decision pool of env.threads, within the decision budget) and waits a random reaction time; then it presses one key
+ * per step, at most config.computerKeyPressRate keys per second. It is driven by timers (one step at a time) so it
+ * does not need a thread of its own.
+ * Not thread safe: the steps of a computer player must not run concurrently.
+ */
+class ComputerPlayer {
+
+    /**
+     * A decision abandoned for exceeding the budget may keep its worker (a bot may ignore interrupts), so the pool
+     * gets a replacement worker until it returns.
+     */
+    private static void addWorker(ThreadPoolExecutor decisions) {
+        synchronized (decisions) {
+            decisions.setMaximumPoolSize(decisions.getMaximumPoolSize() + 1);
+            decisions.setCorePoolSize(decisions.getCorePoolSize() + 1);
+        }
+    }
+
+    private static void removeWorker(ThreadPoolExecutor decisions) {
+        synchronized (decisions) {
+            decisions.setCorePoolSize(decisions.getCorePoolSize() - 1);
+            decisions.setMaximumPoolSize(decisions.getMaximumPoolSize() - 1);
+        }
+    }
+
+    /**
+     * A decision of the bot. Its budget is counted from the time it starts running, not from the time it was
+     * requested, so the time spent waiting for a worker is not charged to the bot.
+     */
+    private final class Decision implements Runnable {
+        static final int QUEUED = 0, RUNNING = 1, DONE = 2, ABANDONED = 3;
+
+        final ThreadPoolExecutor pool;
+        final TableSnapshot snapshot;
+        final AtomicInteger state = new AtomicInteger(QUEUED);
+        volatile Thread worker;
+        volatile long started;
+        volatile int[] slots;
+        volatile Throwable failure;
+
+        Decision(ThreadPoolExecutor pool, TableSnapshot snapshot) {
+            this.pool = pool;
+            this.snapshot = snapshot;
+        }
+
+        @Override
+        public void run() {
+            worker = Thread.currentThread();
+            started = System.nanoTime();
+            if (!state.compareAndSet(QUEUED, RUNNING)) return;
+            try {
+                slots = decide(snapshot);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                boolean abandoned;
+                synchronized (this) {
+                    abandoned = !state.compareAndSet(RUNNING, DONE);
+                    if (abandoned) Thread.interrupted(); // the interrupt of abandon() must not reach the next decision
+                }
+                if (abandoned) removeWorker(pool); // its replacement is not needed any more
+            }
+        }
+
+        /**
+         * Abandons the decision if it is still running (its worker is interrupted and replaced).
+         *
+         * @return - false iff the decision was done in the meantime.
+         */
+        synchronized boolean abandon() {
+            if (!state.compareAndSet(RUNNING, ABANDONED)) return false;
+            addWorker(pool);
+            worker.interrupt();
+            return true;
+        }
+    }
+    private final Env env;
+    private final Bot bot;
+
+    /**
+     * The slots the player is going to select (null if none), and the table version they were chosen for.
+     */
+    private int[] plan;
+    private long planVersion = -1;
+
+    /**
+     * The table version at which a claim of the player was answered without being judged (-1 if none): the tokens are
+     * still on the planned slots, so the player has to lift one of them and put it back to claim again.
+     */
+    private volatile long failedClaimVersion = -1;
+
+    /**
+     * The decision in progress (if any).
+     */
+    private Decision decision;
+
+    /**
+     * The delay (in milliseconds) before the next step, as determined by the last step.
+     */
+    private long nextDelay;
+
+    /**
+     * The time each decision of the bot took, and the number of decisions discarded for exceeding the budget.
+     */
+    private final LatencyHistogram decisionLatency = new LatencyHistogram();
+    private int timeouts;
+
+    ComputerPlayer(Env env, Bot bot) {
+        this.env = env;
+        this.bot = bot;
+    }
+
+    /**
+     * Performs one step of the simulator.
+     *
+     * @param snapshot - the cards on the table.
+     * @param hasToken - tells whether the player has a token on a slot.
+     * @return - the slot whose key should be pressed now, or -1 if no key should be pressed at this step.
+     */
+    int step(TableSnapshot snapshot, IntPredicate hasToken) {
+        if (decision != null && !collectDecision()) return -1;
+
+        if (snapshot.version != planVersion) {
+            // the table changed: think before acting
+            plan = null;
+            planVersion = snapshot.version;
+            ThreadPoolExecutor decisions = env.threads.decisions();
+            decision = new Decision(decisions, snapshot);
+            decisions.execute(decision);
+            nextDelay = reactionTime();
+            return -1;
+        }
+        if (plan != null) {
+            nextDelay = pressInterval();
+            for (int slot = 0; slot < snapshot.size(); slot++)
+                if (hasToken.test(slot) && !planned(slot)) return slot;
+            for (int slot : plan)
+                if (!hasToken.test(slot)) return slot;
+            long failed = failedClaimVersion;
+            if (failed >= 0) {
+                failedClaimVersion = -1;
+                if (failed == snapshot.version) return plan[0]; // lift a token, the next press claims again
+            }
+        }
+        // nothing to press (the claim was made, or there is nothing to claim): re-plan after the next reaction time
+        planVersion = -1;
+        nextDelay = reactionTime();
+        return -1;
+    }
+
+    /**
+     * Tells the simulator that the claim of the player was answered without being judged (e.g. it was rejected or
+     * withdrawn), so it claims again (or picks other slots). May be called from any thread.
+     *
+     * @param tableVersion - the table version when the claim was answered.
+     */
+    void claimFailed(long tableVersion) {
+        failedClaimVersion = tableVersion;
+    }
+
+    /**
+     * Collects the decision in progress, or discards it if it exceeded the budget.
+     *
+     * @return - false iff the decision is still in progress (the next step is scheduled for the end of the budget).
+     */
+    private boolean collectDecision() {
+        long budget = TimeUnit.MILLISECONDS.toNanos(env.config.botDecisionBudgetMillis);
+        int state = decision.state.get();
+        if (state == Decision.RUNNING) {
+            long elapsed = System.nanoTime() - decision.started;
+            if (elapsed <= budget) {
+                nextDelay = Math.max(1, TimeUnit.NANOSECONDS.toMillis(budget - elapsed));
+                return false;
+            }
+            if (decision.abandon()) {
+                timeouts++;
+                decision = null;
+                return true;
+            }
+            state = decision.state.get();
+        }
+        if (state == Decision.QUEUED) {
+            // waiting for a worker: not charged to the bot
+            nextDelay = Math.max(1, env.config.botDecisionBudgetMillis);
+            return false;
+        }
+        if (decision.failure != null) {
+            Throwable failure = decision.failure;
+            env.logger.log(Level.WARNING, () -> "bot " + bot.name() + " failed: " + failure);
+        } else {
+            plan = valid(decision.slots);
+        }
+        decision = null;
+        return true;
+    }
+
+    private int[] decide(TableSnapshot snapshot) {
+        long start = System.nanoTime();
+        try {
+            return bot.decide(snapshot);
+        } finally {
+            decisionLatency.record(System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * @return - the slots if they are config.featureSize distinct slots of the table, null otherwise.
+     */
+    private int[] valid(int[] slots) {
+        if (slots == null || slots.length != env.config.featureSize) return null;
+        for (int i = 0; i < slots.length; i++) {
+            if (slots[i] < 0 || slots[i] >= env.config.tableSize) return null;
+            for (int j = 0; j < i; j++)
+                if (slots[i] == slots[j]) return null;
+        }
+        return slots;
+    }
+
+    /**
+     * @return - the delay (in milliseconds) before the next step.
+     */
+    long nextDelay() {
+        return nextDelay;
+    }
+
+    Bot bot() {
+        return bot;
+    }
+
+    LatencyHistogram decisionLatency() {
+        return decisionLatency;
+    }
+
+    int timeouts() {
+        return timeouts;
+    }
+
+    private boolean planned(int slot) {
+        for (int planned : plan)
+            if (planned == slot) return true;
+        return false;
+    }
+
+    private long reactionTime() {
+        double gaussian = ThreadLocalRandom.current().nextGaussian();
+        return Math.max(0, Math.round(env.config.computerReactionMillis + gaussian * env.config.computerReactionJitterMillis));
+    }
+
+    private long pressInterval() {
+        return env.config.computerKeyPressRate > 0 ? Math.round(1000.0 / env.config.computerKeyPressRate) : 0;
+    }
+}
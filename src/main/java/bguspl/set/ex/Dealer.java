@@ -1,10 +1,22 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.GameJournal;
+import bguspl.set.GameStatsFile;
+import bguspl.set.LatencyHistogram;
 
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
@@ -40,22 +52,65 @@ public class Dealer implements Runnable {
      */
     private long reshuffleTime = Long.MAX_VALUE;
 
-    //queue of waiting players for their set test
-    protected LinkedBlockingQueue<Integer> playersSetsOrder;
+    //claims submitted by the players and not yet taken by the dealer (many producers, the dealer is the consumer)
+    protected ConcurrentLinkedQueue<Claim> playersSetsOrder;
+
+    //claims taken by the dealer and waiting for a verdict, in order of key press and by player (owned by the dealer thread)
+    private final PriorityQueue<Claim> claims;
+    private final Claim[] pending;
+
+    //the players with a claim waiting for a verdict on each slot (the index of pending by slot)
+    private final BitSet[] slotClaimants;
+
+    /**
+     * The admission control of the claims (before they are queued for the dealer).
+     */
+    private final ClaimAdmission admission;
+
+    /**
+     * The time from the key press completing a claim to its submission and to its verdict, the number of claims taken
+     * so far and the number of claims adjudicated before a claim that was submitted earlier.
+     */
+    private final LatencyHistogram submitSkew = new LatencyHistogram();
+    private final LatencyHistogram verdictSkew = new LatencyHistogram();
+    private long claimsTaken;
+    private long lastSequence = -1;
+    private long reordered;
+
+    /**
+     * The dealer thread (unparked when a claim is submitted).
+     */
+    private volatile Thread dealerThread;
+
+    /**
+     * The pool validating the claims against the cards they were made on, while the dealer is busy (null if none).
+     */
+    private volatile ExecutorService validators;
 
     //slots of the current legal set
     private int[] currentSetSlots;
 
-    private int timeToSleep;
+    /**
+     * The game statistics: the time the game started, the number of times the table was cleared, and the number of
+     * admitted claims of each player (counted by the claiming player's thread).
+     */
+    private long started;
+    private int reshuffles;
+    private final int[] claimCounts;
 
     public Dealer(Env env, Table table, Player[] players) {
         this.env = env;
         this.table = table;
         this.players = players;
         deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
-        this.playersSetsOrder = new LinkedBlockingQueue<>(players.length);
+        this.playersSetsOrder = new ConcurrentLinkedQueue<>();
+        this.claims = new PriorityQueue<>(Math.max(1, players.length), Comparator.comparingLong(claim -> claim.nanoTime));
+        this.pending = new Claim[players.length];
+        this.claimCounts = new int[players.length];
+        this.slotClaimants = new BitSet[env.config.tableSize];
+        Arrays.setAll(slotClaimants, slot -> new BitSet(players.length));
+        this.admission = new ClaimAdmission(env, players.length);
         this.currentSetSlots = null;
-        timeToSleep = 1000;
     }
 
     /**
@@ -63,10 +118,18 @@ public class Dealer implements Runnable {
      */
     @Override
     public void run() {
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
+        env.logger.log(Level.INFO, () -> "Thread " + Thread.currentThread().getName() + " starting.");
+        dealerThread = Thread.currentThread();
+        started = System.currentTimeMillis();
+        if (env.config.claimValidators > 0) {
+            int[] next = {0};
+            validators = Executors.newFixedThreadPool(env.config.claimValidators,
+                    r -> env.threads.newThread(r, "claim-validator-" + ++next[0]));
+        }
         //creates players threads
         for (int i = 0; i < players.length; i++) {
-            Thread player = new Thread(players[i]);
+            Thread player = env.threads.newThread(players[i], "player-" + (i + 1));
+            players[i].playerThread = player;
             player.start();
         }
         //main interval - every 60 seconds
@@ -75,11 +138,8 @@ public class Dealer implements Runnable {
             placeCardsOnTable();
             for (int i = 0; i < players.length; i++) {
                 players[i].emptyActionsQueue();
-                if (playersSetsOrder.contains(i)) {
-                    players[i].returnAnswer(Player.DealerRespond.TIMEOVER);
-                }
             }
-            playersSetsOrder.clear();
+            answerAllClaims(Player.DealerRespond.TIMEOVER);
             updateTimerDisplay(true);
             table.lock.dealerUnlock();
             timerLoop();
@@ -95,8 +155,12 @@ public class Dealer implements Runnable {
             } catch (InterruptedException ignored) {
             }
         }
+        if (validators != null) validators.shutdownNow();
+        env.logger.log(Level.INFO, admission::summary);
+        env.logger.log(Level.INFO, () -> "claims reordered by key press time: " + reordered + ", press to submit: "
+                + submitSkew.summary() + ", press to verdict: " + verdictSkew.summary());
         announceWinners();
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
+        env.logger.log(Level.INFO, () -> "Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
@@ -105,7 +169,6 @@ public class Dealer implements Runnable {
     private void timerLoop() {
         while (!terminate && System.currentTimeMillis() < reshuffleTime) {
             sleepUntilWokenOrTimeout();
-            updateTimerDisplay(false);
             table.lock.dealerLock();
             removePlayersIfNeeded();
             removeCardsFromTable();
@@ -123,6 +186,8 @@ public class Dealer implements Runnable {
         for (int i = 0; i < players.length; i++) {
             players[i].terminate();
         }
+        Thread dealer = dealerThread;
+        if (dealer != null) LockSupport.unpark(dealer);
     }
 
     /**
@@ -135,10 +200,136 @@ public class Dealer implements Runnable {
     }
 
     /**
-     * Checks cards should be removed from the table and removes them.
+     * Submits a claim that the tokens of the player form a legal set. Never blocks.
+     * Stale claims (the cards changed since the player placed its last token), and claims over the player's claim
+     * rate, are rejected right away.
+     *
+     * @param playerID - the id of the claiming player.
+     * @return - the dealer's verdict on the claim (the player may cancel it to withdraw the claim).
+     */
+    public CompletableFuture<Player.DealerRespond> testMySet(int playerID) {
+        return testMySet(playerID, System.nanoTime());
+    }
+
+    /**
+     * Submits a claim that the tokens of the player form a legal set. Never blocks.
+     * Stale claims (the cards changed since the player placed its last token), and claims over the player's claim
+     * rate, are rejected right away.
+     *
+     * @param playerID  - the id of the claiming player.
+     * @param pressTime - the time (System.nanoTime) the key completing the claim was pressed.
+     * @return - the dealer's verdict on the claim (the player may cancel it to withdraw the claim).
+     */
+    public CompletableFuture<Player.DealerRespond> testMySet(int playerID, long pressTime) {
+        Claim claim = new Claim(playerID, table.tokenSlots(playerID), table.tokenVersion(playerID), table.snapshot(),
+                pressTime);
+        if (admission.admit(claim, table.snapshot()) != null) {
+            claim.answer(Player.DealerRespond.REJECTED);
+            return claim.verdict;
+        }
+        claimCounts[playerID]++;
+        journal(claim);
+        validate(claim);
+        playersSetsOrder.add(claim);
+        Thread dealer = dealerThread;
+        if (dealer != null) LockSupport.unpark(dealer);
+        return claim.verdict;
+    }
+
+    /**
+     * Journals the claimed cards, and the verdict when the dealer answers.
+     */
+    private void journal(Claim claim) {
+        if (!env.journal.isEnabled()) return;
+        for (int i = 0; i < claim.slots.length; i++)
+            env.journal.record(GameJournal.Event.CLAIM, claim.player, claim.slots[i], claim.cards[i], claim.nanoTime);
+        claim.verdict.thenAccept(respond ->
+                env.journal.record(GameJournal.Event.VERDICT, claim.player, -1, respond.ordinal(), claim.nanoTime));
+    }
+
+    /**
+     * Validates the claim on the validator pool (if any), so the dealer thread only has to commit the outcome.
+     */
+    private void validate(Claim claim) {
+        ExecutorService pool = validators;
+        if (pool == null) return;
+        try {
+            pool.execute(() -> claim.legal.complete(isSet(claim.cards)));
+        } catch (RejectedExecutionException ignored) {
+            // the game is over
+        }
+    }
+
+    /**
+     * Moves the submitted claims to the claims waiting for a verdict.
+     */
+    void takeClaims() {
+        Claim claim;
+        while ((claim = playersSetsOrder.poll()) != null) {
+            admission.taken();
+            claim.sequence = claimsTaken++;
+            submitSkew.record(claim.submitTime - claim.nanoTime);
+            Claim previous = pending[claim.player];
+            if (previous != null) previous.answer(Player.DealerRespond.TIMEOVER); // superseded (the player withdrew it)
+            setPending(claim.player, claim);
+            claims.add(claim);
+        }
+    }
+
+    /**
+     * Sets the claim of the player waiting for a verdict, and updates the index by slot.
+     *
+     * @param player - the player.
+     * @param claim  - the claim (null if none).
+     */
+    private void setPending(int player, Claim claim) {
+        Claim previous = pending[player];
+        if (previous != null) {
+            for (int slot : previous.slots) slotClaimants[slot].clear(player);
+        }
+        pending[player] = claim;
+        if (claim != null) {
+            for (int slot : claim.slots) slotClaimants[slot].set(player);
+        }
+    }
+
+    /**
+     * Answers all the claims waiting for a verdict with the same verdict.
+     */
+    private void answerAllClaims(Player.DealerRespond respond) {
+        takeClaims();
+        for (Claim claim : claims) {
+            claim.answer(respond);
+        }
+        claims.clear();
+        Arrays.fill(pending, null);
+        for (BitSet claimants : slotClaimants) claimants.clear();
+    }
+
+    /**
+     * @return - the claim with the earliest key press, once it is older than the reorder window (null if none),
+     * skipping claims that were already answered.
+     */
+    private Claim nextClaim() {
+        Claim claim;
+        while ((claim = claims.peek()) != null) {
+            if (!claim.isDone() && untilRipe(claim) > 0) return null;
+            claims.poll();
+            if (pending[claim.player] == claim) setPending(claim.player, null);
+            if (!claim.isDone()) {
+                if (claim.sequence < lastSequence) reordered++;
+                lastSequence = Math.max(lastSequence, claim.sequence);
+                return claim;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return - the time (in nanoseconds) until the claim is older than the reorder window.
      */
-    public void testMySet(int playerID) {
-        playersSetsOrder.add(playerID);
+    private long untilRipe(Claim claim) {
+        return claim.nanoTime + TimeUnit.MILLISECONDS.toNanos(env.config.claimReorderWindowMillis) - System.nanoTime();
     }
 
 
@@ -171,68 +362,97 @@ public class Dealer implements Runnable {
     /**
      * Sleep for a fixed amount of time or until the thread is awakened for some purpose.
      */
-    private void sleepUntilWokenOrTimeout() {
+    void sleepUntilWokenOrTimeout() {
         // TODO implement
-        try {
-            Integer currPlayer = playersSetsOrder.poll(timeToSleep, TimeUnit.MILLISECONDS);
-            if (currPlayer != null) {
-                boolean isLegal = isLegalSet(currPlayer);
-                if (isLegal) {
-                    players[currPlayer].returnAnswer(Player.DealerRespond.POINT);
+        takeClaims();
+        long sleep = TimeUnit.MILLISECONDS.toNanos(Math.max(0, reshuffleTime - System.currentTimeMillis()));
+        if (!claims.isEmpty()) sleep = Math.min(sleep, untilRipe(claims.peek()));
+        if (sleep > 0 && playersSetsOrder.isEmpty()) {
+            LockSupport.parkNanos(this, sleep);
+        }
+        takeClaims();
+        Claim claim = nextClaim();
+        if (claim != null) {
+            verdictSkew.record(System.nanoTime() - claim.nanoTime);
+            if (!hasTokens(claim) || !hasCards(claim)) {
+                // the tokens or the cards were removed since the claim was made
+                currentSetSlots = null;
+                claim.answer(Player.DealerRespond.DISGRACE);
+            } else if (isLegalSet(claim)) {
+                if (claim.answer(Player.DealerRespond.POINT)) {
                     updateTimerDisplay(true);
                 } else {
-                    currentSetSlots = null;
-                    players[currPlayer].returnAnswer(Player.DealerRespond.PENALTY);
+                    currentSetSlots = null; // withdrawn by the player in the meantime
                 }
+            } else {
+                currentSetSlots = null;
+                claim.answer(Player.DealerRespond.PENALTY);
             }
-        } catch (InterruptedException ignored) {
         }
     }
 
-    private void removePlayersIfNeeded() {
+    void removePlayersIfNeeded() {
         //remove waiting for check players that have tokens on the same slot
         if (currentSetSlots != null) {
-            for (int i = 0; i < currentSetSlots.length; i++) {
-                for (int j = 0; j < env.config.players; j++) {
-                    if (table.tokensPerPlayer[currentSetSlots[i]][j]) {
-                        boolean hasRemovedFromOrder = playersSetsOrder.remove(j);
-                        if (hasRemovedFromOrder) {
-                            players[j].returnAnswer(Player.DealerRespond.DISGRACE);
-                        }
-                    }
+            takeClaims();
+            for (int slot : currentSetSlots) {
+                BitSet claimants = slotClaimants[slot];
+                for (int j = claimants.nextSetBit(0); j >= 0; j = claimants.nextSetBit(j + 1)) {
+                    pending[j].answer(Player.DealerRespond.DISGRACE); // skipped when it reaches the head of claims
+                    setPending(j, null); // clears bit j of this slot too
                 }
             }
         }
     }
 
-    private boolean isLegalSet(int playerId) {
-        int[] cards = new int[env.config.featureSize];
-        int j = 0;
-        currentSetSlots = new int[env.config.featureSize];
-        for (int i = 0; i < table.tokensPerPlayer.length; i++) {
-            if (table.tokensPerPlayer[i][playerId]) {
-                cards[j] = table.slotToCard[i];
-                currentSetSlots[j] = i;
-                j++;
-            }
+    /**
+     * @return - true iff the player still has its tokens on all the slots of the claim (each of them on a card).
+     */
+    private boolean hasTokens(Claim claim) {
+        if (claim.slots.length != env.config.featureSize) return false;
+        for (int slot : claim.slots) {
+            if (!table.tokensPerPlayer[slot][claim.player] || table.slotToCard[slot] == null) return false;
+        }
+        return true;
+    }
+
+    /**
+     * @return - true iff the claimed slots still hold the cards the claim was made on.
+     */
+    private boolean hasCards(Claim claim) {
+        if (claim.tableVersion == table.snapshot().version) return true;
+        for (int i = 0; i < claim.slots.length; i++) {
+            Integer card = table.slotToCard[claim.slots[i]];
+            if (card == null || card != claim.cards[i]) return false;
+        }
+        return true;
+    }
+
+    /**
+     * Commits the validation of the claim (validates it here if no validator got to it yet, instead of waiting).
+     */
+    private boolean isLegalSet(Claim claim) {
+        currentSetSlots = claim.slots;
+        Boolean legal = claim.legal.getNow(null);
+        return legal != null ? legal : isSet(claim.cards);
+    }
+
+    private boolean isSet(int[] cards) {
+        for (int card : cards) {
+            if (card < 0) return false;
         }
         return env.util.testSet(cards);
     }
 
     /**
-     * Reset and/or update the countdown and the countdown display.
+     * Reset the countdown. The user interface renders the countdown from its deadline, so there is nothing to update
+     * between resets.
      */
     private void updateTimerDisplay(boolean reset) {
         // TODO implement
         if (reset) {
-            timeToSleep = 1000;
-            env.ui.setCountdown(env.config.turnTimeoutMillis, false);
             reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
-        } else if (reshuffleTime - System.currentTimeMillis() < env.config.turnTimeoutWarningMillis) {
-            timeToSleep = 10;
-            env.ui.setCountdown(Math.max(reshuffleTime - System.currentTimeMillis(), 0), true);
-        } else {
-            env.ui.setCountdown(reshuffleTime - System.currentTimeMillis(), false);
+            env.ui.setCountdownDeadline(reshuffleTime, env.config.turnTimeoutWarningMillis);
         }
     }
 
@@ -241,6 +461,8 @@ public class Dealer implements Runnable {
      */
     protected void removeAllCardsFromTable() {
         // TODO implement
+        env.journal.record(GameJournal.Event.RESHUFFLE, -1, -1, deck.size(), 0);
+        reshuffles++;
         for (int i = 0; i < table.slotToCard.length; i++) {
             if (table.slotToCard[i] != null) {
                 deck.add((Integer) table.slotToCard[i]);
@@ -249,34 +471,71 @@ public class Dealer implements Runnable {
         }
     }
 
+    /**
+     * @return - the admission control of the claims (queue depth and rejection counts).
+     */
+    ClaimAdmission admission() {
+        return admission;
+    }
+
+    /**
+     * @return - the number of claims adjudicated before a claim that was submitted earlier.
+     */
+    long reordered() {
+        return reordered;
+    }
+
+    /**
+     * @param slot - the slot.
+     * @return - the players with a claim on the slot waiting for a verdict.
+     */
+    BitSet claimants(int slot) {
+        return (BitSet) slotClaimants[slot].clone();
+    }
+
     /**
      * Check who is/are the winner/s and displays them.
      */
     private void announceWinners() {
         // TODO implement
         if (!terminate) {
-            int maxScore = 0;
-            int counter = 0;
+            int[] scores = new int[players.length];
+            int[] penalties = new int[players.length];
             for (int i = 0; i < players.length; i++) {
-                if (players[i].getScore() > maxScore) {
-                    maxScore = players[i].getScore();
-                    counter = 1;
-                } else if (players[i].getScore() == maxScore) {
-                    counter++;
-                }
+                scores[i] = players[i].getScore();
+                penalties[i] = players[i].getPenalties();
             }
+            env.ui.announceWinner(winners(scores));
+            long now = System.currentTimeMillis();
+            GameStatsFile.record(env, new GameStatsFile.Row(now, now - started, env.config.configHash, reshuffles,
+                    scores, claimCounts.clone(), penalties));
+        }
+    }
 
-            int[] winners = new int[counter];
-            int j = 0;
-            for (int i = 0; i < players.length; i++) {
-                if (players[i].getScore() == maxScore) {
-                    winners[j] = i;
-                    j++;
-                }
+    /**
+     * @param scores - the final score of each player.
+     * @return - the ids of the players with the highest score.
+     */
+    static int[] winners(int[] scores) {
+        int maxScore = 0;
+        int counter = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] > maxScore) {
+                maxScore = scores[i];
+                counter = 1;
+            } else if (scores[i] == maxScore) {
+                counter++;
             }
+        }
 
-            env.ui.announceWinner(winners);
+        int[] winners = new int[counter];
+        int j = 0;
+        for (int i = 0; i < scores.length; i++) {
+            if (scores[i] == maxScore) {
+                winners[j] = i;
+                j++;
+            }
         }
+        return winners;
     }
 }
-
@@ -0,0 +1,550 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+import bguspl.set.GameJournal;
+import bguspl.set.GameStatsFile;
+import bguspl.set.LatencyHistogram;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+import java.util.logging.Level;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * An alternative game engine in which a single thread at a time runs the whole game.
+ * The loop owns the table (which is therefore unguarded) and processes, in order, key presses submitted by other
+ * threads through a lock-free event queue, the claims of the players, and its own timers (countdown ticks, freeze
+ * expiries and computer player steps). Players are state machines rather than threads.
+ * The loop either runs on a thread of its own (run) or as short turns on a shared executor (start).
+ * Used for headless games (see GameServer); the interactive game keeps the threaded Dealer and Player.
+ */
+public class EventLoopDealer implements Runnable {
+
+    /**
+     * The states of a player.
+     */
+    enum PlayerState {
+        IDLE, CHOOSING, AWAITING_VERDICT, FROZEN
+    }
+
+    /**
+     * A key press submitted by another thread.
+     */
+    private static final class KeyPress {
+        final int player;
+        final int slot;
+
+        KeyPress(int player, int slot) {
+            this.player = player;
+            this.slot = slot;
+        }
+    }
+
+    private static final int FREEZE_TICK = 0, COMPUTER_PRESS = 1;
+
+    /**
+     * A timer owned by the loop thread.
+     */
+    private static final class Timer implements Comparable<Timer> {
+        final long due;
+        final int type;
+        final int player;
+
+        Timer(long due, int type, int player) {
+            this.due = due;
+            this.type = type;
+            this.player = player;
+        }
+
+        @Override
+        public int compareTo(Timer other) {
+            return Long.compare(due, other.due);
+        }
+    }
+
+    /**
+     * The game environment object.
+     */
+    private final Env env;
+
+    /**
+     * The table, owned by the loop thread.
+     */
+    private final Table table;
+
+    /**
+     * The list of card ids that are left in the dealer's deck.
+     */
+    private final List<Integer> deck;
+
+    /**
+     * The state, score and freeze deadline of each player.
+     */
+    private final PlayerState[] states;
+    private final int[] scores;
+    private final int[] penalties;
+    private final long[] freezeUntil;
+
+    /**
+     * The game statistics: the time the game started, the number of times the table was cleared, and the number of
+     * claims of each player.
+     */
+    private long started;
+    private int reshuffles;
+    private final int[] claimCounts;
+
+    /**
+     * The key press simulators of the computer players (null for human players).
+     */
+    private final ComputerPlayer[] computers;
+
+    /**
+     * Key presses submitted by other threads (multiple producers, the loop thread is the single consumer).
+     */
+    private final Queue<KeyPress> keyPresses = new ConcurrentLinkedQueue<>();
+
+    /**
+     * The loop thread's timers, ordered by due time.
+     */
+    private final PriorityQueue<Timer> timers = new PriorityQueue<>();
+
+    /**
+     * The ids of the players waiting for a verdict, in the order of their claims.
+     */
+    private final Queue<Integer> claims = new ArrayDeque<>();
+
+    /**
+     * True iff game should be terminated due to an external event.
+     */
+    private volatile boolean terminate;
+
+    private volatile Thread loopThread;
+
+    /**
+     * When the game runs as turns (see start): the executor running them, the number of turns requested and not yet
+     * handled, the scheduled wakeup for the next timer and its due time, and the completion of the game.
+     */
+    private volatile ScheduledExecutorService executor;
+    private final AtomicInteger wakeups = new AtomicInteger();
+    private ScheduledFuture<?> timerWakeup;
+    private long timerWakeupTime;
+    private boolean begun;
+    private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+    /**
+     * The time when the dealer needs to reshuffle the deck due to turn timeout.
+     */
+    private long reshuffleTime = Long.MAX_VALUE;
+
+    public EventLoopDealer(Env env) {
+        this.env = env;
+        this.table = new Table(env, SemaphoreSET.unguarded(), 0); // the loop must not sleep, it is headless anyway
+        deck = IntStream.range(0, env.config.deckSize).boxed().collect(Collectors.toList());
+        states = new PlayerState[env.config.players];
+        Arrays.fill(states, PlayerState.IDLE);
+        scores = new int[env.config.players];
+        penalties = new int[env.config.players];
+        freezeUntil = new long[env.config.players];
+        claimCounts = new int[env.config.players];
+        computers = new ComputerPlayer[env.config.players];
+        for (int player = env.config.humanPlayers; player < env.config.players; player++)
+            computers[player] = new ComputerPlayer(env, Bot.forPlayer(env, player));
+    }
+
+    /**
+     * The loop thread starts here and runs until the game is over (parking between events).
+     */
+    @Override
+    public void run() {
+        loopThread = Thread.currentThread();
+        if (begin()) {
+            while (!turn())
+                sleepUntilWokenOrTimeout();
+        }
+        end();
+    }
+
+    /**
+     * Runs the game as a sequence of short turns on the executor instead of on a thread of its own: a turn handles the
+     * pending events and the due timers and schedules a wakeup for the next timer, so between events the game holds no
+     * thread and the threads of the executor are shared by many games. The turns of a game never run concurrently.
+     *
+     * @param executor - the executor running the turns (may be shared with other games).
+     * @return - completes when the game is over.
+     */
+    public CompletableFuture<Void> start(ScheduledExecutorService executor) {
+        this.executor = executor;
+        wake();
+        return done;
+    }
+
+    /**
+     * Called when the game should be terminated due to an external event. May be called from any thread.
+     */
+    public void terminate() {
+        terminate = true;
+        signal();
+    }
+
+    /**
+     * Submits a key press of a player. May be called from any thread.
+     *
+     * @param player - the player that pressed the key.
+     * @param slot   - the slot corresponding to the key pressed.
+     */
+    public void keyPressed(int player, int slot) {
+        keyPresses.add(new KeyPress(player, slot));
+        signal();
+    }
+
+    /**
+     * Tells the loop there is an event to handle: wakes the loop thread, or runs a turn on the executor.
+     */
+    private void signal() {
+        if (executor != null) {
+            wake();
+        } else {
+            Thread thread = loopThread;
+            if (thread != null) LockSupport.unpark(thread);
+        }
+    }
+
+    /**
+     * Requests a turn: the first request while no turn is running submits the turns to the executor, later requests
+     * are picked up by the turns already running.
+     */
+    private void wake() {
+        if (wakeups.getAndIncrement() == 0) {
+            try {
+                executor.execute(this::runTurns);
+            } catch (RejectedExecutionException e) {
+                done.completeExceptionally(e); // the executor was shut down
+            }
+        }
+    }
+
+    /**
+     * Runs turns until all the wakeups requested so far are handled, then schedules the wakeup for the next timer.
+     */
+    private void runTurns() {
+        int handled = wakeups.get();
+        while (true) {
+            boolean over;
+            try {
+                if (!begun) {
+                    begun = true;
+                    over = !begin() || turn();
+                } else {
+                    over = turn();
+                }
+                if (over) {
+                    if (timerWakeup != null) timerWakeup.cancel(false);
+                    end();
+                    done.complete(null);
+                    return; // the wakeups are never handled, so no more turns are submitted
+                }
+                scheduleTimerWakeup();
+            } catch (Throwable e) {
+                done.completeExceptionally(e);
+                return;
+            }
+            handled = wakeups.addAndGet(-handled);
+            if (handled == 0) return;
+        }
+    }
+
+    /**
+     * Schedules a wakeup of the game for its next timer (once per due time).
+     */
+    private void scheduleTimerWakeup() {
+        long wakeup = nextWakeup();
+        if (wakeup == timerWakeupTime && timerWakeup != null && !timerWakeup.isDone()) return;
+        if (timerWakeup != null) timerWakeup.cancel(false);
+        timerWakeupTime = wakeup;
+        timerWakeup = wakeup == Long.MAX_VALUE ? null
+                : executor.schedule(this::wake, Math.max(0, wakeup - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Deals the cards and starts the timers of the computer players.
+     *
+     * @return - false iff the game is over before it started.
+     */
+    private boolean begin() {
+        started = System.currentTimeMillis();
+        env.logger.log(Level.INFO, () -> "Thread " + Thread.currentThread().getName() + " starting.");
+        if (shouldFinish()) return false;
+        placeCardsOnTable();
+        updateTimerDisplay();
+        long now = System.currentTimeMillis();
+        for (int player = env.config.humanPlayers; player < env.config.players; player++)
+            timers.add(new Timer(now, COMPUTER_PRESS, player));
+        return true;
+    }
+
+    /**
+     * Handles the submitted key presses, the due timers, the claims and the turn timeout.
+     *
+     * @return - true iff the game is over.
+     */
+    private boolean turn() {
+        if (terminate) return true;
+        KeyPress press;
+        while ((press = keyPresses.poll()) != null)
+            handleKeyPress(press.player, press.slot);
+        long now = System.currentTimeMillis();
+        while (!timers.isEmpty() && timers.peek().due <= now)
+            fire(timers.poll(), now);
+        adjudicateClaims();
+        return System.currentTimeMillis() >= reshuffleTime && reshuffle();
+    }
+
+    private void end() {
+        announceWinners();
+        env.logger.log(Level.INFO, () -> "Thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * @return - the current score of each player.
+     */
+    public int[] scores() {
+        return scores.clone();
+    }
+
+    /**
+     * @return - the number of penalties each player got.
+     */
+    public int[] penalties() {
+        return penalties.clone();
+    }
+
+    /**
+     * @return - the number of claims of each player that got a verdict (points, penalties and void claims).
+     */
+    public int[] claims() {
+        return claimCounts.clone();
+    }
+
+    /**
+     * @param player - the id of a computer player.
+     * @return - the name of the bot playing the player.
+     */
+    public String botName(int player) {
+        return computers[player].bot().name();
+    }
+
+    /**
+     * @param player - the id of a computer player.
+     * @return - the time each decision of the player's bot took.
+     */
+    public LatencyHistogram decisionLatency(int player) {
+        return computers[player].decisionLatency();
+    }
+
+    /**
+     * @param player - the id of a computer player.
+     * @return - the number of decisions of the player's bot that were discarded for exceeding the budget.
+     */
+    public int decisionTimeouts(int player) {
+        return computers[player].timeouts();
+    }
+
+    /**
+     * Check if the game should be terminated or the game end conditions are met.
+     *
+     * @return true iff the game should be finished.
+     */
+    private boolean shouldFinish() {
+        return terminate || env.util.findSets(deck, 1).size() == 0;
+    }
+
+    /**
+     * Parks the loop thread until the next timer is due or another thread submits an event.
+     */
+    private void sleepUntilWokenOrTimeout() {
+        if (!keyPresses.isEmpty() || terminate) return;
+        long millis = nextWakeup() - System.currentTimeMillis();
+        if (millis > 0) LockSupport.parkNanos(this, TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    /**
+     * @return - the time (System.currentTimeMillis) the next timer or the turn timeout is due.
+     */
+    private long nextWakeup() {
+        long wakeup = reshuffleTime;
+        if (!timers.isEmpty()) wakeup = Math.min(wakeup, timers.peek().due);
+        return wakeup;
+    }
+
+    private void fire(Timer timer, long now) {
+        switch (timer.type) {
+            case FREEZE_TICK: {
+                long remaining = freezeUntil[timer.player] - now;
+                if (remaining <= 0) {
+                    env.ui.setFreeze(timer.player, 0);
+                    states[timer.player] = stateByTokens(timer.player);
+                } else {
+                    env.ui.setFreeze(timer.player, remaining);
+                    timers.add(new Timer(now + Math.min(1000, remaining), FREEZE_TICK, timer.player));
+                }
+                break;
+            }
+            case COMPUTER_PRESS: {
+                int player = timer.player;
+                long delay;
+                if (states[player] == PlayerState.FROZEN) {
+                    delay = freezeUntil[player] - now;
+                } else {
+                    int slot = computers[player].step(table.snapshot(), s -> table.tokensPerPlayer[s][player]);
+                    if (slot >= 0) handleKeyPress(player, slot);
+                    delay = computers[player].nextDelay();
+                }
+                timers.add(new Timer(now + Math.max(1, delay), COMPUTER_PRESS, player));
+                break;
+            }
+        }
+    }
+
+    /**
+     * Toggles the player's token on the slot, and queues a claim when the player has placed all of its tokens.
+     * Presses of frozen players and players waiting for a verdict are dropped.
+     */
+    private void handleKeyPress(int player, int slot) {
+        if (states[player] == PlayerState.AWAITING_VERDICT || states[player] == PlayerState.FROZEN) return;
+        if (!table.removeToken(player, slot) && table.getNumOfTokens(player) < env.config.featureSize) {
+            table.placeToken(player, slot);
+            if (table.getNumOfTokens(player) == env.config.featureSize) {
+                states[player] = PlayerState.AWAITING_VERDICT;
+                claims.add(player);
+                return;
+            }
+        }
+        states[player] = stateByTokens(player);
+    }
+
+    private PlayerState stateByTokens(int player) {
+        return table.getNumOfTokens(player) == 0 ? PlayerState.IDLE : PlayerState.CHOOSING;
+    }
+
+    /**
+     * Adjudicates the pending claims in order. A claim is void if one of its cards was removed by an earlier claim.
+     */
+    private void adjudicateClaims() {
+        Integer player;
+        while ((player = claims.poll()) != null) {
+            if (states[player] != PlayerState.AWAITING_VERDICT) continue;
+            claimCounts[player]++;
+            int[] slots = new int[env.config.featureSize];
+            int[] cards = new int[env.config.featureSize];
+            int j = 0;
+            for (int slot = 0; slot < table.tokensPerPlayer.length && j < slots.length; slot++) {
+                if (table.tokensPerPlayer[slot][player]) {
+                    slots[j] = slot;
+                    cards[j] = table.slotToCard[slot];
+                    j++;
+                }
+            }
+            long claimTime = System.nanoTime();
+            for (int i = 0; i < j; i++)
+                env.journal.record(GameJournal.Event.CLAIM, player, slots[i], cards[i], claimTime);
+            if (j < slots.length) {
+                states[player] = stateByTokens(player);
+                env.journal.record(GameJournal.Event.VERDICT, player, -1, Player.DealerRespond.DISGRACE.ordinal(), claimTime);
+            } else if (env.util.testSet(cards)) {
+                env.journal.record(GameJournal.Event.VERDICT, player, -1, Player.DealerRespond.POINT.ordinal(), claimTime);
+                for (int slot : slots)
+                    table.removeCard(slot);
+                placeCardsOnTable();
+                env.ui.setScore(player, ++scores[player]);
+                env.journal.record(GameJournal.Event.SCORE, player, -1, scores[player], 0);
+                freeze(player, env.config.pointFreezeMillis);
+                updateTimerDisplay();
+            } else {
+                env.journal.record(GameJournal.Event.VERDICT, player, -1, Player.DealerRespond.PENALTY.ordinal(), claimTime);
+                penalties[player]++;
+                freeze(player, env.config.penaltyFreezeMillis);
+            }
+        }
+    }
+
+    private void freeze(int player, long millis) {
+        if (millis <= 0) {
+            env.ui.setFreeze(player, 0);
+            states[player] = stateByTokens(player);
+            return;
+        }
+        long now = System.currentTimeMillis();
+        freezeUntil[player] = now + millis;
+        states[player] = PlayerState.FROZEN;
+        env.ui.setFreeze(player, millis);
+        timers.add(new Timer(now + Math.min(1000, millis), FREEZE_TICK, player));
+    }
+
+    /**
+     * Returns all the cards to the deck and deals again (pending claims are dropped).
+     *
+     * @return - true iff the game is over.
+     */
+    private boolean reshuffle() {
+        env.journal.record(GameJournal.Event.RESHUFFLE, -1, -1, deck.size(), 0);
+        reshuffles++;
+        for (int slot = 0; slot < table.slotToCard.length; slot++) {
+            if (table.slotToCard[slot] != null) {
+                deck.add(table.slotToCard[slot]);
+                table.removeCard(slot);
+            }
+        }
+        claims.clear();
+        for (int player = 0; player < states.length; player++)
+            if (states[player] != PlayerState.FROZEN) states[player] = PlayerState.IDLE;
+        if (shouldFinish()) return true;
+        placeCardsOnTable();
+        updateTimerDisplay();
+        return false;
+    }
+
+    /**
+     * Check if any cards can be removed from the deck and placed on the table.
+     */
+    private void placeCardsOnTable() {
+        for (int slot = 0; slot < table.slotToCard.length && !deck.isEmpty(); slot++) {
+            if (table.slotToCard[slot] == null) {
+                int card = ThreadLocalRandom.current().nextInt(deck.size());
+                table.placeCard(deck.get(card), slot);
+                deck.remove(card);
+            }
+        }
+    }
+
+    /**
+     * Reset the countdown (the user interface renders the countdown from its deadline).
+     */
+    private void updateTimerDisplay() {
+        reshuffleTime = System.currentTimeMillis() + env.config.turnTimeoutMillis;
+        env.ui.setCountdownDeadline(reshuffleTime, env.config.turnTimeoutWarningMillis);
+    }
+
+    /**
+     * Check who is/are the winner/s and displays them.
+     */
+    private void announceWinners() {
+        if (terminate) return;
+        env.ui.announceWinner(Dealer.winners(scores));
+        long now = System.currentTimeMillis();
+        GameStatsFile.record(env, new GameStatsFile.Row(now, now - started, env.config.configHash, reshuffles,
+                scores.clone(), claimCounts.clone(), penalties.clone()));
+    }
+}
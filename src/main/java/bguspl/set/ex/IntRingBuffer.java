@@ -0,0 +1,156 @@
+package bguspl.set.ex;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * A bounded single-producer single-consumer queue of primitive ints (e.g. the key presses of a player), each with an
+ * optional long stamp (e.g. the time of the key press).
+ * Offering and taking do not allocate and do not lock; a consumer waiting for a value is parked and unparked by the
+ * producer. clear() may be called from any thread: it discards everything offered so far, and is applied by the
+ * consumer (so the consumer remains the only writer of the head). The cleared values keep their capacity until the
+ * consumer applies the clear, since the consumer may be reading one of them.
+ */
+public class IntRingBuffer {
+
+    private final int[] buffer;
+    private final long[] stamps;
+    private final int mask;
+
+    /**
+     * The stamp of the value last taken (read and written by the consumer only).
+     */
+    private long lastStamp;
+
+    /**
+     * The index of the next value to take (written by the consumer only).
+     */
+    private final AtomicLong head = new AtomicLong();
+
+    /**
+     * The index of the next value to offer (written by the producer only).
+     */
+    private final AtomicLong tail = new AtomicLong();
+
+    /**
+     * The values before this index were cleared (applied to the head by the consumer).
+     */
+    private final AtomicLong clearedTo = new AtomicLong();
+
+    /**
+     * The consumer thread, while it is parked waiting for a value.
+     */
+    private volatile Thread waiter;
+
+    /**
+     * @param capacity - the minimal capacity (rounded up to a power of two).
+     */
+    public IntRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        buffer = new int[size];
+        stamps = new long[size];
+        mask = size - 1;
+    }
+
+    /**
+     * Offers a value (producer only). Never blocks.
+     *
+     * @param value - the value.
+     * @return - true iff the value was added (false if the buffer is full).
+     */
+    public boolean offer(int value) {
+        return offer(value, 0);
+    }
+
+    /**
+     * Offers a value with a stamp (producer only). Never blocks.
+     *
+     * @param value - the value.
+     * @param stamp - the stamp of the value (see lastStamp()).
+     * @return - true iff the value was added (false if the buffer is full).
+     */
+    public boolean offer(int value, long stamp) {
+        long t = tail.get();
+        if (t - head.get() >= buffer.length) return false;
+        buffer[(int) t & mask] = value;
+        stamps[(int) t & mask] = stamp;
+        tail.set(t + 1); // publishes the value, and orders the write before reading the waiter
+        Thread consumer = waiter;
+        if (consumer != null) LockSupport.unpark(consumer);
+        return true;
+    }
+
+    /**
+     * Takes the next value, waiting for one if the buffer is empty (consumer only).
+     *
+     * @return - the value.
+     * @throws InterruptedException - if the consumer was interrupted while waiting.
+     */
+    public int take() throws InterruptedException {
+        while (true) {
+            long h = applyClear();
+            if (h < tail.get()) {
+                int value = buffer[(int) h & mask];
+                lastStamp = stamps[(int) h & mask];
+                head.set(h + 1);
+                return value;
+            }
+            if (Thread.interrupted()) throw new InterruptedException();
+            waiter = Thread.currentThread();
+            if (h == tail.get()) LockSupport.park(this); // re-checked after announcing the waiter
+            waiter = null;
+        }
+    }
+
+    /**
+     * Tells whether a value is waiting in the buffer (producer only: values may be taken concurrently, so a value
+     * reported as waiting may have just been taken).
+     *
+     * @param value - the value.
+     * @return - true iff the value was offered and was not taken or cleared yet.
+     */
+    public boolean contains(int value) {
+        long t = tail.get();
+        for (long i = Math.max(head.get(), clearedTo.get()); i < t; i++)
+            if (buffer[(int) i & mask] == value) return true;
+        return false;
+    }
+
+    /**
+     * @return - the stamp of the value last returned by take() (consumer only).
+     */
+    public long lastStamp() {
+        return lastStamp;
+    }
+
+    /**
+     * Discards all the values offered so far. May be called from any thread.
+     */
+    public void clear() {
+        long t = tail.get();
+        long cleared;
+        while (t > (cleared = clearedTo.get()) && !clearedTo.compareAndSet(cleared, t)) ;
+    }
+
+    /**
+     * @return - the number of values in the buffer.
+     */
+    public int size() {
+        long t = tail.get();
+        return (int) Math.max(0, t - Math.max(head.get(), clearedTo.get()));
+    }
+
+    public boolean isEmpty() {
+        return size() == 0;
+    }
+
+    private long applyClear() {
+        long h = head.get();
+        long cleared = clearedTo.get();
+        if (h < cleared) {
+            head.set(cleared);
+            return cleared;
+        }
+        return h;
+    }
+}
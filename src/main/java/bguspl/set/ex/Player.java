@@ -1,9 +1,16 @@
 package bguspl.set.ex;
 
-import java.util.concurrent.LinkedBlockingQueue;
+import java.util.BitSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
 import java.util.logging.Level;
 
 import bguspl.set.Env;
+import bguspl.set.GameJournal;
+import bguspl.set.LatencyHistogram;
+import bguspl.set.TimingWheel;
 
 
 /**
@@ -15,7 +22,7 @@ import bguspl.set.Env;
 public class Player implements Runnable {
 
     protected enum DealerRespond {
-        POINT, PENALTY, DISGRACE, TIMEOVER
+        POINT, PENALTY, DISGRACE, TIMEOVER, REJECTED
     }
 
     /**
@@ -39,9 +46,10 @@ public class Player implements Runnable {
     protected Thread playerThread;
 
     /**
-     * The thread of the AI (computer) player (an additional thread used to generate key presses).
+     * The key press simulator of the AI (computer) player, and its next scheduled step (driven by the timing wheel).
      */
-    private Thread aiThread;
+    private volatile ComputerPlayer computer;
+    private volatile TimingWheel.Timeout aiStep;
 
     /**
      * True iff the player is human (not a computer player).
@@ -58,14 +66,38 @@ public class Player implements Runnable {
      */
     private int score;
 
-    protected LinkedBlockingQueue<Integer> actions;
+    /**
+     * The number of penalties the player got.
+     */
+    private int penalties;
+
+    /**
+     * The key presses of the player (produced by the input thread or the computer player steps, consumed by the player
+     * thread).
+     */
+    protected IntRingBuffer actions;
+
+    /**
+     * The number of key presses dropped (written by the input thread only), and the time from a key press to the
+     * handling of its token by the player thread.
+     */
+    private volatile int droppedKeyPresses;
+    private final LatencyHistogram inputLatency = new LatencyHistogram();
 
     private Dealer dealer;
 
     //If you should empty the queue of actions
     private boolean shouldEmptyQueue;
 
-    private LinkedBlockingQueue<DealerRespond> answerFromDealer;
+    /**
+     * The time (in milliseconds) until which the player is frozen (key presses before it are dropped).
+     */
+    private volatile long freezeUntil;
+
+    /**
+     * The pending update of the freeze countdown display (if any).
+     */
+    private TimingWheel.Timeout freezeDisplay;
 
     /**
      * The class constructor.
@@ -83,8 +115,7 @@ public class Player implements Runnable {
         this.human = human;
         this.dealer = dealer;
         this.shouldEmptyQueue = false;
-        this.actions = new LinkedBlockingQueue<>(env.config.featureSize);
-        this.answerFromDealer = new LinkedBlockingQueue<>(1);
+        this.actions = new IntRingBuffer(env.config.featureSize);
     }
 
     /**
@@ -93,7 +124,7 @@ public class Player implements Runnable {
     @Override
     public void run() {
         playerThread = Thread.currentThread();
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + "starting.");
+        env.logger.log(Level.INFO, () -> "Thread " + Thread.currentThread().getName() + "starting.");
         if (!human) createArtificialIntelligence();
         while (!terminate && !Thread.currentThread().isInterrupted()) {
             // TODO implement main player loop
@@ -103,13 +134,14 @@ public class Player implements Runnable {
             }
             try {
                 int currentAction = actions.take();
+                if (isFrozen()) continue;
                 boolean hasRemoved = table.removeToken(id, currentAction);
                 if (!hasRemoved && table.getNumOfTokens(id) < env.config.featureSize) {
                     table.placeToken(id, currentAction);
+                    if (human) inputLatency.record(System.nanoTime() - actions.lastStamp());
                     try {
                         if (table.getNumOfTokens(id) == env.config.featureSize) {
-                            dealer.testMySet(id);
-                            DealerRespond dealerRespond = answerFromDealer.take();
+                            DealerRespond dealerRespond = awaitVerdict(dealer.testMySet(id, actions.lastStamp()));
                             switch (dealerRespond) {
                                 case POINT: {
                                     point();
@@ -119,10 +151,11 @@ public class Player implements Runnable {
                                     penalty();
                                     break;
                                 }
-                                case DISGRACE: {
-                                    break;
-                                }
-                                case TIMEOVER: {
+                                case DISGRACE:
+                                case TIMEOVER:
+                                case REJECTED: {
+                                    // the tokens were not judged: the computer player claims them again
+                                    if (computer != null) computer.claimFailed(table.snapshot().version);
                                     break;
                                 }
                             }
@@ -136,34 +169,59 @@ public class Player implements Runnable {
                 Thread.currentThread().interrupt();
             }
         }
-        if (!human) try {
-            aiThread.interrupt();
-            aiThread.join();
-        } catch (InterruptedException ignored) {
+        if (!human) {
+            terminate = true; // stops rescheduling of the computer player steps
+            TimingWheel.Timeout step = aiStep;
+            if (step != null) step.cancel();
+        }
+        env.logger.log(Level.INFO, () -> "Thread " + Thread.currentThread().getName() + " terminated.");
+    }
+
+    /**
+     * Waits for the dealer's verdict on a claim, for at most config.claimTimeoutMillis.
+     *
+     * @param verdict - the verdict on the claim.
+     * @return - the verdict, or TIMEOVER if the claim was withdrawn because the dealer did not answer in time.
+     * @throws InterruptedException - if the player was interrupted while waiting.
+     */
+    private DealerRespond awaitVerdict(CompletableFuture<DealerRespond> verdict) throws InterruptedException {
+        try {
+            if (env.config.claimTimeoutMillis <= 0) return verdict.get();
+            return verdict.get(env.config.claimTimeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException | ExecutionException e) {
+            // withdraw the claim, unless the verdict arrived just now
+            return verdict.cancel(false) ? DealerRespond.TIMEOVER : verdict.getNow(DealerRespond.TIMEOVER);
         }
-        env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
     }
 
     /**
-     * Creates an additional thread for an AI (computer) player. The main loop of this thread repeatedly generates
-     * key presses. If the queue of key presses is full, the thread waits until it is not full.
+     * Starts the AI (computer) player. Instead of an additional thread, the key presses are generated by short steps
+     * on the shared timing wheel: the strategy picks the slots after a reaction time, then one key is pressed per step.
      */
     private void createArtificialIntelligence() {
-        // note: this is a very very smart AI (!)
-        aiThread = new Thread(() -> {
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " starting.");
-            while (!terminate && !Thread.currentThread().isInterrupted()) {
-                // TODO implement player key press simulator
-                int randomSlot = (int) (Math.random() * env.config.tableSize);
-                try {
-                    actions.put((Integer) randomSlot);
-                } catch (InterruptedException e) {
-                    Thread.currentThread().interrupt();
-                }
-            }
-            env.logger.log(Level.INFO, "Thread " + Thread.currentThread().getName() + " terminated.");
-        }, "computer-" + id);
-        aiThread.start();
+        computer = new ComputerPlayer(env, Bot.forPlayer(env, id));
+        aiStep = TimingWheel.shared().schedule(this::computerStep, 0);
+    }
+
+    /**
+     * One step of the computer player (runs on the timing wheel thread, so it must not block).
+     */
+    private void computerStep() {
+        if (terminate) return;
+        long delay;
+        long frozenFor = freezeUntil - System.currentTimeMillis();
+        if (frozenFor > 0) {
+            delay = frozenFor;
+        } else if (!actions.isEmpty()) {
+            // the previous key press was not handled yet
+            delay = 1;
+        } else {
+            BitSet tokens = table.tokens(id);
+            int slot = computer.step(table.snapshot(), tokens::get);
+            if (slot >= 0) actions.offer(slot, System.nanoTime());
+            delay = computer.nextDelay();
+        }
+        aiStep = TimingWheel.shared().schedule(this::computerStep, delay);
     }
 
     /**
@@ -181,11 +239,39 @@ public class Player implements Runnable {
      * @param slot - the slot corresponding to the key pressed.
      */
     public void keyPressed(int slot) {
+        keyPressed(slot, System.nanoTime());
+    }
+
+    /**
+     * This method is called when a key is pressed. Never blocks: the key press is dropped if the player's queue is
+     * full.
+     *
+     * @param slot      - the slot corresponding to the key pressed.
+     * @param pressTime - the time (System.nanoTime) the key was pressed.
+     * @return - true iff the key press was queued.
+     */
+    public boolean keyPressed(int slot, long pressTime) {
+        return keyPressed(slot, pressTime, false);
+    }
+
+    /**
+     * This method is called when a key is pressed. Never blocks: the key press is dropped if the player's queue is
+     * full, or (if config.coalesceKeyPresses) if it is an auto repeat of a held key whose press is still waiting in it.
+     *
+     * @param slot      - the slot corresponding to the key pressed.
+     * @param pressTime - the time (System.nanoTime) the key was pressed.
+     * @param repeat    - true iff the key was held down since its previous press (auto repeat).
+     * @return - true iff the key press was queued.
+     */
+    public boolean keyPressed(int slot, long pressTime, boolean repeat) {
         // TODO implement
-        try {
-            actions.put((Integer) slot);
-        } catch (InterruptedException ignored) {
+        // the computer player steps are the only producer of a computer player's key presses
+        if (!human || isFrozen()) return false;
+        if ((repeat && env.config.coalesceKeyPresses && actions.contains(slot)) || !actions.offer(slot, pressTime)) {
+            droppedKeyPresses++;
+            return false;
         }
+        return true;
     }
 
     /**
@@ -197,16 +283,9 @@ public class Player implements Runnable {
     public void point() {
         // TODO implement
         int ignored = table.countCards(); // this part is just for demonstration in the unit tests
-        try {
-            long freezeTime = System.currentTimeMillis() + env.config.pointFreezeMillis;
-            while (freezeTime - System.currentTimeMillis() >= 1000){
-                env.ui.setFreeze(id, freezeTime - System.currentTimeMillis());
-                Thread.sleep(900);}
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
-        }
-        env.ui.setFreeze(id, 0);
         env.ui.setScore(id, ++score);
+        env.journal.record(GameJournal.Event.SCORE, id, -1, score, 0);
+        freeze(env.config.pointFreezeMillis);
     }
 
     /**
@@ -214,30 +293,60 @@ public class Player implements Runnable {
      */
     public void penalty() {
         // TODO implement
-        try {
-            long freezeTime = System.currentTimeMillis() + env.config.penaltyFreezeMillis;
-            while (freezeTime - System.currentTimeMillis() >= 1000) {
-                env.ui.setFreeze(id, freezeTime - System.currentTimeMillis());
-                Thread.sleep(900);
-            }
-        } catch (InterruptedException e) {
-            Thread.currentThread().interrupt();
+        penalties++;
+        freeze(env.config.penaltyFreezeMillis);
+    }
+
+    /**
+     * Freezes the player without blocking its thread: the freeze is a deadline, and the countdown display is updated
+     * by the shared timing wheel.
+     *
+     * @param millis - the freeze time in milliseconds.
+     */
+    private synchronized void freeze(long millis) {
+        if (freezeDisplay != null) freezeDisplay.cancel();
+        freezeUntil = System.currentTimeMillis() + millis;
+        updateFreezeDisplay();
+    }
+
+    private synchronized void updateFreezeDisplay() {
+        long remaining = freezeUntil - System.currentTimeMillis();
+        if (remaining > 0) {
+            env.ui.setFreeze(id, remaining);
+            freezeDisplay = TimingWheel.shared().schedule(this::updateFreezeDisplay, Math.min(1000, remaining));
+        } else {
+            env.ui.setFreeze(id, 0);
+            freezeDisplay = null;
         }
-        env.ui.setFreeze(id, 0);
+    }
+
+    /**
+     * @return - true iff the player is currently frozen.
+     */
+    public boolean isFrozen() {
+        return System.currentTimeMillis() < freezeUntil;
     }
 
     public int getScore() {
         return score;
     }
 
-    public void emptyActionsQueue() {
-        actions.clear();
+    public int getPenalties() {
+        return penalties;
     }
 
-    public void returnAnswer(DealerRespond answer) {
-        try {
-            answerFromDealer.put(answer);
-        } catch (InterruptedException e) {
-        }
+    public int getDroppedKeyPresses() {
+        return droppedKeyPresses;
+    }
+
+    /**
+     * @return - the time from a key press to the handling of its token by the player thread (human players only).
+     */
+    public LatencyHistogram getInputLatency() {
+        return inputLatency;
+    }
+
+    public void emptyActionsQueue() {
+        actions.clear();
     }
 }
@@ -0,0 +1,34 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A bot that claims random cards (mostly not a legal set).
+ */
+public class RandomBot implements Bot {
+
+    private Env env;
+
+    @Override
+    public void start(Env env, int player) {
+        this.env = env;
+    }
+
+    @Override
+    public int[] decide(TableSnapshot snapshot) {
+        List<Integer> cards = snapshot.cards();
+        if (cards.size() < env.config.featureSize) return null;
+        int[] slots = new int[env.config.featureSize];
+        for (int i = 0; i < slots.length; i++) {
+            // partial Fisher-Yates shuffle of the cards
+            int j = ThreadLocalRandom.current().nextInt(i, cards.size());
+            int card = cards.get(j);
+            cards.set(j, cards.get(i));
+            slots[i] = snapshot.slotOf(card);
+        }
+        return slots;
+    }
+}
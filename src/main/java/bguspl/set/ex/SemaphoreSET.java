@@ -1,41 +1,93 @@
 package bguspl.set.ex;
 
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A readers-writer style lock of the table: many players may use the table at the same time, the dealer uses it
+ * exclusively and waiting dealers have priority over new players.
+ * Implemented with a ReentrantLock (rather than synchronized/wait) so that virtual threads blocked on it do not pin
+ * their carrier threads.
+ * Taking the lock is not interruptible: an interrupted thread keeps waiting until the lock is free (the callers have no
+ * way to back out of a table operation), and its interrupt status is still set when it gets the lock, so its loop
+ * ends right after the operation.
+ */
 public class SemaphoreSET {
     int activePlayers = 0, activeDealer = 0, waitingDealer = 0;
 
+    private final ReentrantLock monitor = new ReentrantLock();
+    private final Condition changed = monitor.newCondition();
+
     public SemaphoreSET() {
     }
 
-    public synchronized void playerLock() {
+    /**
+     * @return - a lock that never blocks, for a table that is owned by a single thread (see EventLoopDealer).
+     */
+    public static SemaphoreSET unguarded() {
+        return new SemaphoreSET() {
+            @Override
+            public void playerLock() {
+            }
+
+            @Override
+            public void playerUnlock() {
+            }
+
+            @Override
+            public void dealerLock() {
+            }
+
+            @Override
+            public void dealerUnlock() {
+            }
+        };
+    }
+
+    public void playerLock() {
+        monitor.lock();
         try {
             while (!allowPlayer()) {
-                wait();
+                changed.awaitUninterruptibly();
             }
-        } catch (InterruptedException ignored) {
+            activePlayers++;
+        } finally {
+            monitor.unlock();
         }
-        activePlayers++;
     }
 
-    public synchronized void playerUnlock() {
-        activePlayers--;
-        notifyAll();
+    public void playerUnlock() {
+        monitor.lock();
+        try {
+            activePlayers--;
+            changed.signalAll();
+        } finally {
+            monitor.unlock();
+        }
     }
 
-    public synchronized void dealerLock() {
-        waitingDealer++;
+    public void dealerLock() {
+        monitor.lock();
         try {
+            waitingDealer++;
             while (!allowDealer()) {
-                wait();
+                changed.awaitUninterruptibly();
             }
-        } catch (InterruptedException ignored) {
+            waitingDealer--;
+            activeDealer++;
+        } finally {
+            monitor.unlock();
         }
-        waitingDealer--;
-        activeDealer++;
     }
 
-    public synchronized void dealerUnlock() {
-        activeDealer--;
-        notifyAll();
+    public void dealerUnlock() {
+        monitor.lock();
+        try {
+            activeDealer--;
+            changed.signalAll();
+        } finally {
+            monitor.unlock();
+        }
     }
 
     protected boolean allowPlayer() {
@@ -0,0 +1,29 @@
+package bguspl.set.ex;
+
+import bguspl.set.Env;
+
+import java.util.List;
+
+/**
+ * A bot that claims a legal set on the table, if there is one.
+ */
+public class SetFinderBot implements Bot {
+
+    private Env env;
+
+    @Override
+    public void start(Env env, int player) {
+        this.env = env;
+    }
+
+    @Override
+    public int[] decide(TableSnapshot snapshot) {
+        List<int[]> sets = env.util.findSets(snapshot.cards(), 1);
+        if (sets.isEmpty()) return null;
+        int[] set = sets.get(0);
+        int[] slots = new int[set.length];
+        for (int i = 0; i < set.length; i++)
+            slots[i] = snapshot.slotOf(set[i]);
+        return slots;
+    }
+}
@@ -1,10 +1,14 @@
 package bguspl.set.ex;
 
 import bguspl.set.Env;
+import bguspl.set.GameJournal;
 
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 import java.util.stream.Collectors;
 
 /**
@@ -33,6 +37,32 @@ public class Table {
 
     protected SemaphoreSET lock;
 
+    /**
+     * The time (in milliseconds) to delay before placing or removing a card.
+     */
+    private final long delayMillis;
+
+    /**
+     * The number of card placements and removals so far.
+     */
+    private long version;
+
+    /**
+     * The cards on the table as of the last card change (republished on every change).
+     */
+    private volatile TableSnapshot snapshot;
+
+    /**
+     * The slots of each player's tokens as of its last token change (republished on every change, never modified).
+     */
+    private final AtomicReferenceArray<BitSet> playerTokens;
+
+    /**
+     * The table version at the last token placement of each player (the cards the player saw when it completed its
+     * selection).
+     */
+    private final AtomicLongArray tokenVersions;
+
     /**
      * Constructor for testing.
      *
@@ -42,12 +72,22 @@ public class Table {
      */
     public Table(Env env, Integer[] slotToCard, Integer[] cardToSlot) {
 
+        this(env, slotToCard, cardToSlot, new SemaphoreSET(), env.config.tableDelayMillis);
+    }
+
+    private Table(Env env, Integer[] slotToCard, Integer[] cardToSlot, SemaphoreSET lock, long delayMillis) {
+
         this.env = env;
         this.slotToCard = slotToCard;
         this.cardToSlot = cardToSlot;
         this.tokensPerPlayer = new boolean[slotToCard.length][env.config.players];
         turnFalse();
-        this.lock = new SemaphoreSET();
+        this.lock = lock;
+        this.delayMillis = delayMillis;
+        this.snapshot = new TableSnapshot(version, slotToCard);
+        this.playerTokens = new AtomicReferenceArray<>(env.config.players);
+        for (int player = 0; player < env.config.players; player++) playerTokens.set(player, new BitSet());
+        this.tokenVersions = new AtomicLongArray(env.config.players);
     }
 
 
@@ -61,6 +101,18 @@ public class Table {
         this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize]);
     }
 
+    /**
+     * Constructor for a table with a custom lock and card delay.
+     *
+     * @param env         - the game environment objects.
+     * @param lock        - the table lock (e.g. SemaphoreSET.unguarded() for a table owned by a single thread).
+     * @param delayMillis - the time to delay before placing or removing a card (0 for no delay).
+     */
+    public Table(Env env, SemaphoreSET lock, long delayMillis) {
+
+        this(env, new Integer[env.config.tableSize], new Integer[env.config.deckSize], lock, delayMillis);
+    }
+
     //remove all tokens from the matrix tokenPerPlayer - just for the constructor
     private void turnFalse() {
         for (int i = 0; i < slotToCard.length; i++) {
@@ -107,13 +159,12 @@ public class Table {
      */
 
     public void placeCard(int card, int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
-        }
+        delay();
         cardToSlot[card] = slot;
         slotToCard[slot] = card;
+        snapshot = new TableSnapshot(++version, slotToCard);
         // TODO implement
+        env.journal.record(GameJournal.Event.CARD_PLACED, -1, slot, card, version);
         env.ui.placeCard(card, slot);
     }
 
@@ -124,24 +175,33 @@ public class Table {
      */
 
     public void removeCard(int slot) {
-        try {
-            Thread.sleep(env.config.tableDelayMillis);
-        } catch (InterruptedException ignored) {
-        }
+        delay();
 
         // TODO implement
         int card = slotToCard[slot];
         slotToCard[slot] = null;
         cardToSlot[card] = null;
+        snapshot = new TableSnapshot(++version, slotToCard);
         for (int i = 0; i < env.config.players; i++) {
             if (tokensPerPlayer[slot][i]) {
                 tokensPerPlayer[slot][i] = false;
+                publishToken(i, slot, false);
+                env.journal.record(GameJournal.Event.TOKEN_REMOVED, i, slot, card, 0);
                 env.ui.removeToken(i, slot);
             }
         }
+        env.journal.record(GameJournal.Event.CARD_REMOVED, -1, slot, card, version);
         env.ui.removeCard(slot);
     }
 
+    private void delay() {
+        if (delayMillis <= 0) return;
+        try {
+            Thread.sleep(delayMillis);
+        } catch (InterruptedException ignored) {
+        }
+    }
+
     /**
      * Places a player token on a grid slot.
      *
@@ -152,8 +212,12 @@ public class Table {
     public void placeToken(int player, int slot) {
         // TODO implement
         lock.playerLock();
-        if (slotToCard[slot] != null) {
+        Integer card = slotToCard[slot];
+        if (card != null) {
             tokensPerPlayer[slot][player] = true;
+            publishToken(player, slot, true);
+            tokenVersions.set(player, snapshot.version);
+            env.journal.record(GameJournal.Event.TOKEN_PLACED, player, slot, card, 0);
             env.ui.placeToken(player, slot);
         }
         lock.playerUnlock();
@@ -173,13 +237,66 @@ public class Table {
         boolean hasRemoved = false;
         if (tokensPerPlayer[slot][player]) {
             tokensPerPlayer[slot][player] = false;
+            publishToken(player, slot, false);
             hasRemoved = true;
+            Integer card = slotToCard[slot];
+            env.journal.record(GameJournal.Event.TOKEN_REMOVED, player, slot, card == null ? -1 : card, 0);
             env.ui.removeToken(player, slot);
         }
         lock.playerUnlock();
         return hasRemoved;
     }
 
+    /**
+     * @return - the cards on the table as of the last card change (never blocks).
+     */
+    public TableSnapshot snapshot() {
+        return snapshot;
+    }
+
+    /**
+     * @param player - the player the tokens belong to.
+     * @return - the slots of the player's tokens as of its last token change (never blocks; must not be modified).
+     */
+    public BitSet tokens(int player) {
+        return playerTokens.get(player);
+    }
+
+    /**
+     * Republishes the tokens of the player (the tokens of a player are changed by one thread at a time: its own, under
+     * the shared lock, or the dealer's, under the exclusive lock).
+     */
+    private void publishToken(int player, int slot, boolean token) {
+        BitSet tokens = (BitSet) playerTokens.get(player).clone();
+        tokens.set(slot, token);
+        playerTokens.set(player, tokens);
+    }
+
+    /**
+     * @param player - the player the tokens belong to.
+     * @return - the table version when the player last placed a token.
+     */
+    public long tokenVersion(int player) {
+        return tokenVersions.get(player);
+    }
+
+    /**
+     * @param player - the player the tokens belong to.
+     * @return - the slots of the player's tokens, in ascending order.
+     */
+    public int[] tokenSlots(int player) {
+        lock.playerLock();
+        int[] slots = new int[tokensPerPlayer.length];
+        int count = 0;
+        for (int i = 0; i < tokensPerPlayer.length; i++) {
+            if (tokensPerPlayer[i][player]) {
+                slots[count++] = i;
+            }
+        }
+        lock.playerUnlock();
+        return Arrays.copyOf(slots, count);
+    }
+
     public int getNumOfTokens(int playerId) {
         lock.playerLock();
         int counter = 0;
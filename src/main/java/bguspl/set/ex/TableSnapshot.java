@@ -0,0 +1,64 @@
+package bguspl.set.ex;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An immutable view of the cards on the table at a given table version.
+ * A new snapshot is published by the table on every card change, so reading the current snapshot is a single
+ * volatile read and any number of threads may share it.
+ */
+public final class TableSnapshot {
+
+    /**
+     * The table version this snapshot was taken at (increases on every card placement or removal).
+     */
+    public final long version;
+
+    /**
+     * The card in each slot (-1 if none).
+     */
+    private final int[] slotToCard;
+
+    TableSnapshot(long version, Integer[] slotToCard) {
+        this.version = version;
+        this.slotToCard = new int[slotToCard.length];
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            this.slotToCard[slot] = slotToCard[slot] == null ? -1 : slotToCard[slot];
+    }
+
+    /**
+     * @return - the number of slots on the table.
+     */
+    public int size() {
+        return slotToCard.length;
+    }
+
+    /**
+     * @param slot - the slot number.
+     * @return - the card in the slot, or -1 if the slot is empty.
+     */
+    public int card(int slot) {
+        return slotToCard[slot];
+    }
+
+    /**
+     * @param card - the card id.
+     * @return - the slot the card is in, or -1 if the card is not on the table.
+     */
+    public int slotOf(int card) {
+        for (int slot = 0; slot < slotToCard.length; slot++)
+            if (slotToCard[slot] == card) return slot;
+        return -1;
+    }
+
+    /**
+     * @return - the cards on the table (in slot order).
+     */
+    public List<Integer> cards() {
+        List<Integer> cards = new ArrayList<>(slotToCard.length);
+        for (int card : slotToCard)
+            if (card >= 0) cards.add(card);
+        return cards;
+    }
+}
@@ -0,0 +1,84 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AsyncLogHandlerTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void publish_WritesTheRecordsInTheLogFormat() throws Exception {
+        Path file = directory.resolve("game.log");
+        AsyncLogHandler handler = new AsyncLogHandler(file, 16);
+        LogRecord record = new LogRecord(Level.INFO, "player {0} scored");
+        record.setParameters(new Object[]{3});
+        handler.publish(record);
+        handler.publish(new LogRecord(Level.SEVERE, "placing card 5 in slot 2"));
+        handler.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(2, lines.size());
+        assertTrue(lines.get(0).matches("\\[\\d\\d:\\d\\d:\\d\\d\\.\\d\\d\\d] \\[INFO   ] player 3 scored"), lines.get(0));
+        assertTrue(lines.get(1).endsWith("[SEVERE ] placing card 5 in slot 2"), lines.get(1));
+    }
+
+    @Test
+    void publish_WritesTheRecordsInTheFormatSet() throws Exception {
+        Path file = directory.resolve("game.log");
+        AsyncLogHandler handler = new AsyncLogHandler(file, 16);
+        handler.setFormat("%2$s: %3$s (%1$tY)%n");
+        LogRecord record = new LogRecord(Level.INFO, "player {0} scored");
+        record.setParameters(new Object[]{3});
+        handler.publish(record);
+        handler.close();
+
+        List<String> lines = Files.readAllLines(file);
+        assertEquals(1, lines.size());
+        assertTrue(lines.get(0).matches("INFO: player 3 scored \\(\\d{4}\\)"), lines.get(0));
+    }
+
+    @Test
+    void message_SubstitutesTheParametersLikeConcatenation() {
+        assertEquals("updating countdown to 60000", AsyncLogHandler.message("updating countdown to {0}", new Object[]{60000L}));
+        assertEquals("player 2 placing token on slot 11",
+                AsyncLogHandler.message("player {0} placing token on slot {1}", new Object[]{2, 11}));
+        assertEquals("{1} and {x} stay, it's {0}", AsyncLogHandler.message("{1} and {x} stay, it's {0}", new Object[]{"{0}"}));
+        assertEquals("no parameters {0}", AsyncLogHandler.message("no parameters {0}", null));
+    }
+
+    @Test
+    void publish_CountsTheRecordsItDrops() throws Exception {
+        Path file = directory.resolve("game.log");
+        AsyncLogHandler handler = new AsyncLogHandler(file, 4);
+        int threads = 4;
+        int records = 5000;
+        Thread[] loggers = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int id = i;
+            loggers[i] = new Thread(() -> {
+                for (int j = 0; j < records; j++)
+                    handler.publish(new LogRecord(Level.INFO, "logger " + id + " record " + j));
+            });
+            loggers[i].start();
+        }
+        for (Thread logger : loggers) logger.join();
+        handler.flush();
+        handler.close();
+
+        List<String> lines = Files.readAllLines(file);
+        long written = lines.stream().filter(line -> line.contains("] logger ")).count();
+        assertEquals((long) threads * records, written + handler.getDropped());
+        if (handler.getDropped() > 0)
+            assertTrue(lines.stream().anyMatch(line -> line.contains("dropped")));
+    }
+}
@@ -0,0 +1,99 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardAtlasTest {
+
+    @TempDir
+    Path directory;
+
+    private Logger logger;
+    private Path file;
+
+    @BeforeEach
+    void setUp() {
+        logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        file = directory.resolve("cards.atlas");
+    }
+
+    private Config config(int cellWidth) {
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "2");
+        properties.put("CellWidth", Integer.toString(cellWidth));
+        properties.put("CellHeight", "6");
+        return new Config(logger, properties);
+    }
+
+    /**
+     * @return - the color of the image of the card (the last image is the empty card).
+     */
+    private static int color(int image) {
+        return 0xff000000 | image * 0x101010;
+    }
+
+    private static Image[] images(Config config) {
+        Image[] images = new Image[config.deckSize + 1];
+        for (int i = 0; i < images.length; i++) {
+            BufferedImage image = new BufferedImage(config.cellWidth, config.cellHeight, BufferedImage.TYPE_INT_ARGB);
+            for (int x = 0; x < config.cellWidth; x++)
+                for (int y = 0; y < config.cellHeight; y++) image.setRGB(x, y, color(i));
+            images[i] = image;
+        }
+        return images;
+    }
+
+    @Test
+    void open_ReadsTheImagesWritten() throws IOException {
+        Config config = config(8);
+        CardAtlas.write(file, config, images(config));
+        CardAtlas atlas = CardAtlas.open(file, config, logger);
+
+        for (int card = 0; card < config.deckSize; card++) {
+            BufferedImage image = (BufferedImage) atlas.image(card);
+            assertEquals(8, image.getWidth());
+            assertEquals(6, image.getHeight());
+            assertEquals(color(card), image.getRGB(0, 0));
+            assertEquals(color(card), image.getRGB(7, 5));
+        }
+        assertEquals(color(config.deckSize), ((BufferedImage) atlas.image(CardImages.EMPTY)).getRGB(3, 3));
+    }
+
+    @Test
+    void open_RejectsAnAtlasOfAnotherCellSize() throws IOException {
+        Config config = config(8);
+        CardAtlas.write(file, config, images(config));
+
+        IOException e = assertThrows(IOException.class, () -> CardAtlas.open(file, config(10), logger));
+        assertTrue(e.getMessage().contains("not of the configured deck and cell size"), e.getMessage());
+    }
+
+    @Test
+    void open_RejectsTruncatedAndForeignFiles() throws IOException {
+        Config config = config(8);
+        CardAtlas.write(file, config, images(config));
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.truncate(channel.size() - 4);
+        }
+        assertThrows(IOException.class, () -> CardAtlas.open(file, config, logger));
+
+        Files.write(file, "not an atlas at all, just text".getBytes());
+        IOException e = assertThrows(IOException.class, () -> CardAtlas.open(file, config, logger));
+        assertEquals("not a card atlas", e.getMessage());
+    }
+}
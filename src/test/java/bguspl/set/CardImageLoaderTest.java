@@ -0,0 +1,47 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardImageLoaderTest {
+
+    @Test
+    void image_IsAPlaceholderUntilTheCardIsLoaded() throws InterruptedException {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.put("CellWidth", "60");
+        properties.put("CellHeight", "40");
+        Config config = new Config(logger, properties);
+        CardImageLoader loader = new CardImageLoader(logger, config);
+
+        Image placeholder = loader.image(5);
+        assertSame(placeholder, loader.image(CardImages.EMPTY)); // nothing is loaded before start
+        assertEquals(60, placeholder.getWidth(null));
+        assertEquals(40, placeholder.getHeight(null));
+
+        Set<Integer> loaded = ConcurrentHashMap.newKeySet();
+        CountDownLatch all = new CountDownLatch(config.deckSize + 1);
+        loader.start(card -> {
+            if (EventQueue.isDispatchThread() && loaded.add(card)) all.countDown();
+        });
+        assertTrue(all.await(30, TimeUnit.SECONDS));
+
+        assertTrue(loaded.contains(CardImages.EMPTY));
+        Image card = loader.image(5);
+        assertNotSame(placeholder, card);
+        assertSame(loader.loadNow(5), card); // scaled once and cached
+        assertEquals(60, ((BufferedImage) card).getWidth());
+        assertEquals(40, ((BufferedImage) card).getHeight());
+    }
+}
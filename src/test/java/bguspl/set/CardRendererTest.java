@@ -0,0 +1,54 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CardRendererTest {
+
+    private Config config;
+
+    @BeforeEach
+    void setUp() {
+        // a deck without card image resources
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "4");
+        properties.put("FeatureCount", "5");
+        properties.put("CellWidth", "120");
+        properties.put("CellHeight", "80");
+        config = new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    @Test
+    void image_DrawsCardsAtTheCellSize() {
+        CardRenderer renderer = new CardRenderer(config, 4);
+        BufferedImage card = (BufferedImage) renderer.image(config.deckSize - 1);
+        assertEquals(120, card.getWidth());
+        assertEquals(80, card.getHeight());
+        BufferedImage empty = (BufferedImage) renderer.image(CardImages.EMPTY);
+        assertFalse(Arrays.equals(card.getRGB(0, 0, 120, 80, null, 0, 120),
+                empty.getRGB(0, 0, 120, 80, null, 0, 120)));
+    }
+
+    @Test
+    void image_KeepsOnlyTheRecentlyUsedCards() {
+        CardRenderer renderer = new CardRenderer(config, 2);
+        assertSame(renderer.image(0), renderer.image(0));
+        Image first = renderer.image(0);
+        renderer.image(1);
+        renderer.image(2); // evicts card 0
+        assertNotSame(first, renderer.image(0));
+    }
+
+    @Test
+    void create_DrawsCardsWhenThereAreNoCardImages() {
+        assertTrue(CardImages.create(Logger.getAnonymousLogger(), config) instanceof CardRenderer);
+    }
+}
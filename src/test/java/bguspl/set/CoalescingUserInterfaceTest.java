@@ -0,0 +1,88 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.BitSet;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.mockito.Mockito.*;
+
+class CoalescingUserInterfaceTest {
+
+    private UserInterface swing;
+    private CoalescingUserInterface ui;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("PlayerKeys1", "81,87,69,82");
+        properties.put("PlayerKeys2", "85,73,79,80");
+        properties.put("UiFramesPerSecond", "1"); // the test applies the changes itself
+        Logger logger = Logger.getAnonymousLogger();
+        swing = mock(UserInterface.class);
+        ui = new CoalescingUserInterface(new Config(logger, properties), swing);
+    }
+
+    @AfterEach
+    void tearDown() {
+        ui.dispose();
+    }
+
+    @Test
+    void applyChanges_CoalescesUpdatesWithinAFrame() {
+        ui.placeCard(5, 0);
+        ui.placeCard(6, 0);
+        ui.setCountdown(3000, false);
+        ui.setCountdown(2000, false);
+        ui.setScore(1, 1);
+        ui.setScore(1, 2);
+        ui.applyChanges();
+
+        verify(swing).placeCard(6, 0);
+        verify(swing, never()).placeCard(5, 0);
+        verify(swing).setCountdown(2000, false);
+        verify(swing, never()).setCountdown(3000, false);
+        verify(swing).setScore(1, 2);
+        verify(swing, never()).removeCard(anyInt());
+    }
+
+    @Test
+    void applyChanges_AppliesTheLastTimerUpdateAsAWhole() {
+        ui.setCountdownDeadline(5000, 1000);
+        ui.setElapsed(42);
+        ui.applyChanges();
+        ui.applyChanges(); // nothing changed since
+
+        verify(swing).setElapsed(42);
+        verify(swing, never()).setCountdownDeadline(anyLong(), anyLong());
+        verify(swing, never()).setCountdown(anyLong(), anyBoolean());
+    }
+
+    @Test
+    void applyChanges_SetsAllTheTokensOfASlotAtOnce() {
+        ui.placeToken(0, 2);
+        ui.placeToken(1, 2);
+        ui.removeToken(0, 2);
+        ui.placeToken(0, 2);
+        ui.applyChanges();
+
+        verify(swing).setTokens(2, BitSet.valueOf(new long[]{0b11}));
+        verify(swing, never()).placeToken(anyInt(), anyInt());
+        verify(swing, never()).removeTokens(anyInt());
+    }
+
+    @Test
+    void applyChanges_AppliesOnlyWhatChanged() {
+        ui.placeToken(0, 3);
+        ui.applyChanges();
+        verify(swing).setTokens(3, BitSet.valueOf(new long[]{0b1}));
+
+        ui.applyChanges();
+        verifyNoMoreInteractions(swing);
+    }
+}
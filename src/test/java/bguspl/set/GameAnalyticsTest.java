@@ -0,0 +1,107 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameAnalyticsTest {
+
+    @TempDir
+    Path directory;
+
+    private Config config;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "1");
+        properties.put("Columns", "3");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", "2");
+        properties.put("PlayerKeys1", "81,87,69");
+        properties.put("PlayerKeys2", "85,73,79");
+        config = new Config(Logger.getAnonymousLogger(), properties);
+    }
+
+    @Test
+    void analyze_CountsThePointsAndPenaltiesOfALog() throws Exception {
+        // cards 0, 1, 2 form a set (all their features but the last are equal), cards 0, 1, 4 do not
+        Path log = directory.resolve("game.log");
+        Files.write(log, Arrays.asList(
+                "[10:00:00.000] [INFO   ] thread main starting.",
+                "[10:00:00.000] [FINE   ] placing card 0 in slot 0",
+                "[10:00:00.000] [FINE   ] placing card 1 in slot 1",
+                "[10:00:01.000] [FINE   ] placing card 4 in slot 2",
+                "[10:00:01.100] [FINE   ] player 2 placing token on slot 0",
+                "[10:00:01.200] [FINE   ] player 2 placing token on slot 1",
+                "[10:00:01.500] [FINE   ] player 2 placing token on slot 2",
+                "[10:00:01.600] [FINE   ] setting player 2 freeze to 3000",
+                "[10:00:02.600] [FINE   ] setting player 2 freeze to 2000",
+                "[10:00:04.600] [FINE   ] setting player 2 freeze to 0",
+                "[10:00:05.000] [FINE   ] removing card from slot 2",
+                "[10:00:05.000] [FINE   ] removing player 2 token from slot 2",
+                "[10:00:06.000] [FINE   ] placing card 2 in slot 2",
+                "[10:00:06.200] [FINE   ] player 1 placing token on slot 0",
+                "[10:00:06.300] [FINE   ] player 1 placing token on slot 1",
+                "[10:00:06.400] [FINE   ] player 1 placing token on slot 2",
+                "[10:00:06.500] [FINE   ] setting player 1 score to 1",
+                "[10:00:06.500] [FINE   ] setting player 1 freeze to 1000",
+                "[10:00:07.500] [FINE   ] setting player 1 freeze to 0",
+                "[10:00:08.000] [FINE   ] removing card from slot 0",
+                "[10:00:08.000] [FINE   ] removing card from slot 1",
+                "[10:00:08.000] [FINE   ] removing card from slot 2"));
+
+        GameAnalytics.GameStats stats = GameAnalytics.analyze(config, "game", Collections.singletonList(log));
+
+        assertEquals(2, stats.players());
+        assertEquals(1, stats.points(0));
+        assertEquals(0, stats.penalties(0));
+        assertEquals(0, stats.points(1));
+        assertEquals(1, stats.penalties(1));
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(400), stats.reactions(0).maxNanos());
+        assertEquals(TimeUnit.MILLISECONDS.toNanos(500), stats.reactions(1).maxNanos());
+        assertEquals(1, stats.reshuffles());
+        assertEquals(TimeUnit.SECONDS.toNanos(8), stats.durationNanos());
+        // no set from the start until card 2 is placed, and after the cards are removed
+        assertEquals(TimeUnit.SECONDS.toNanos(6), stats.deadNanos());
+    }
+
+    @Test
+    void analyze_ReadsTheSegmentsOfAJournal() throws Exception {
+        GameJournal journal = new GameJournal(directory.resolve("game").toString(), 4 * GameJournal.RECORD_SIZE);
+        journal.record(GameJournal.Event.CARD_PLACED, -1, 0, 0, 1);
+        journal.record(GameJournal.Event.CARD_PLACED, -1, 1, 1, 2);
+        journal.record(GameJournal.Event.CARD_PLACED, -1, 2, 2, 3);
+        journal.record(GameJournal.Event.CLAIM, 1, 0, 0, 7);
+        journal.record(GameJournal.Event.CLAIM, 1, 1, 1, 7);
+        journal.record(GameJournal.Event.CLAIM, 1, 2, 2, 7);
+        journal.record(GameJournal.Event.VERDICT, 1, -1, 0, 7); // a point
+        journal.record(GameJournal.Event.SCORE, 1, -1, 1, 0);
+        journal.record(GameJournal.Event.RESHUFFLE, -1, -1, 78, 0);
+        journal.close();
+
+        Map<String, List<Path>> games = GameAnalytics.games(Collections.singletonList(directory));
+        assertEquals(1, games.size());
+        List<Path> segments = games.values().iterator().next();
+        assertEquals(3, segments.size());
+
+        GameAnalytics.GameStats stats = GameAnalytics.analyze(config, "game", segments);
+        assertEquals(2, stats.players());
+        assertEquals(1, stats.claims(1));
+        assertEquals(1, stats.points(1));
+        assertEquals(1, stats.reactions(1).count());
+        assertEquals(1, stats.reshuffles());
+    }
+}
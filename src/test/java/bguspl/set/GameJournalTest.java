@@ -0,0 +1,86 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameJournalTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void record_RollsSegmentsAndReadsBackInOrder() throws Exception {
+        GameJournal journal = new GameJournal(directory.resolve("game").toString(), 11 * GameJournal.RECORD_SIZE);
+        for (int i = 0; i < 25; i++)
+            journal.record(GameJournal.Event.CARD_PLACED, -1, i, 100 + i, i);
+        journal.close();
+
+        List<Integer> slots = new ArrayList<>();
+        for (int segment = 0; segment < 3; segment++) {
+            GameJournal.read(journal.segmentPath(segment), (time, event, player, slot, value, extra) -> {
+                assertEquals(GameJournal.Event.CARD_PLACED, event);
+                assertEquals(100 + slot, value);
+                assertEquals(slot, extra);
+                slots.add(slot);
+            });
+        }
+        assertEquals(25, slots.size());
+        for (int i = 0; i < slots.size(); i++) assertEquals(i, (int) slots.get(i));
+        assertFalse(Files.exists(journal.segmentPath(3)));
+    }
+
+    @Test
+    void read_SkipsTheRecordsThatWereNeverWritten() throws Exception {
+        GameJournal journal = new GameJournal(directory.resolve("game").toString(), 1 << 12);
+        for (int i = 0; i < 5; i++)
+            journal.record(GameJournal.Event.CARD_PLACED, -1, i, 100 + i, i);
+        journal.close();
+        try (FileChannel channel = FileChannel.open(journal.segmentPath(0), StandardOpenOption.WRITE)) {
+            // the writer of record 2 claimed it and crashed before writing it, the later ones were written
+            channel.write(ByteBuffer.allocate(GameJournal.RECORD_SIZE), 3L * GameJournal.RECORD_SIZE);
+        }
+
+        List<Integer> slots = new ArrayList<>();
+        GameJournal.read(journal.segmentPath(0), (time, event, player, slot, value, extra) -> slots.add(slot));
+        assertEquals(Arrays.asList(0, 1, 3, 4), slots);
+    }
+
+    @Test
+    void record_AppendsFromManyThreads() throws Exception {
+        GameJournal journal = new GameJournal(directory.resolve("game").toString(), 1 << 20);
+        int threads = 4;
+        int records = 2000;
+        Thread[] players = new Thread[threads];
+        for (int i = 0; i < threads; i++) {
+            int player = i;
+            players[i] = new Thread(() -> {
+                for (int j = 0; j < records; j++)
+                    journal.record(GameJournal.Event.TOKEN_PLACED, player, j % 12, j, 0);
+            });
+            players[i].start();
+        }
+        for (Thread player : players) player.join();
+        journal.close();
+
+        int[] perPlayer = new int[threads];
+        AtomicInteger total = new AtomicInteger();
+        GameJournal.read(journal.segmentPath(0), (time, event, player, slot, value, extra) -> {
+            assertEquals(perPlayer[player]++, value); // the records of each thread keep their order
+            total.incrementAndGet();
+        });
+        assertEquals(threads * records, total.get());
+        assertEquals(0, journal.lost());
+    }
+}
@@ -0,0 +1,119 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameServerTest {
+
+    private static Config config(int humanPlayers, int computerPlayers, boolean eventLoop) {
+        return config(humanPlayers, computerPlayers, eventLoop, 64);
+    }
+
+    private static Config config(int humanPlayers, int computerPlayers, boolean eventLoop, int maxGames) {
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("FeatureCount", "3");
+        properties.put("HumanPlayers", Integer.toString(humanPlayers));
+        properties.put("ComputerPlayers", Integer.toString(computerPlayers));
+        properties.put("PlayerKeys1", "81,87,69,82,65,83,68,70,90,88,67,86");
+        properties.put("PlayerKeys2", "85,73,79,80,74,75,76,59,77,44,46,47");
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.put("TurnTimeoutSeconds", "2");
+        properties.put("ComputerReactionSeconds", "0");
+        properties.put("ComputerReactionJitterSeconds", "0");
+        properties.put("ComputerKeyPressesPerSecond", "0");
+        properties.put("EventLoopEngine", Boolean.toString(eventLoop));
+        properties.put("ServerParallelism", "1");
+        properties.put("ServerMaxGames", Integer.toString(maxGames));
+        return new Config(logger(), properties);
+    }
+
+    private static Logger logger() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        return logger;
+    }
+
+    @Test
+    void submit_StartsAllTheGamesRightAway() throws Exception {
+        // the players are human and never press a key, so the games go on until the server is shut down
+        Config config = config(2, 0, false);
+        GameServer server = new GameServer(logger(), config, new GameThreads());
+        int games = 50;
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int i = 0; i < games; i++) futures.add(server.submit());
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (server.running() < games && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        assertEquals(games, server.running());
+
+        server.shutdown();
+        assertEquals(0, server.running());
+        for (Future<int[]> future : futures) assertTrue(future.isDone());
+    }
+
+    @Test
+    void submit_RunsAtMostServerMaxGamesThreadedGamesAtOnce() throws Exception {
+        // the players are human and never press a key, so the running games never make room for the waiting ones
+        Config config = config(2, 0, false, 10);
+        GameThreads threads = new GameThreads();
+        GameServer server = new GameServer(logger(), config, threads);
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) futures.add(server.submit());
+
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (server.running() < 10 && System.currentTimeMillis() < deadline) Thread.sleep(10);
+        Thread.sleep(100);
+        assertEquals(10, server.running());
+        long created = threads.created();
+
+        server.shutdown();
+        assertEquals(0, server.running());
+        assertEquals(created, threads.created()); // the waiting games are cancelled without starting
+        assertEquals(10, futures.stream().filter(future -> !future.isCancelled()).count());
+        for (Future<int[]> future : futures) assertTrue(future.isDone());
+    }
+
+    @Test
+    void submit_PlaysTheGamesToTheEnd() throws Exception {
+        Config config = config(0, 2, false);
+        GameServer server = new GameServer(logger(), config, new GameThreads());
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int i = 0; i < 4; i++) futures.add(server.submit());
+
+        for (Future<int[]> future : futures) {
+            int[] scores = future.get(60, TimeUnit.SECONDS);
+            assertEquals(2, scores.length);
+            assertTrue(Arrays.stream(scores).sum() > 0, Arrays.toString(scores));
+        }
+        server.shutdown();
+    }
+
+    @Test
+    void submit_RunsTheEventLoopGamesOnSharedThreads() throws Exception {
+        Config config = config(0, 2, true);
+        GameThreads threads = new GameThreads();
+        GameServer server = new GameServer(logger(), config, threads);
+        int games = 50;
+        List<Future<int[]>> futures = new ArrayList<>();
+        for (int i = 0; i < games; i++) futures.add(server.submit());
+        assertEquals(games, server.running()); // none of them waits for a thread
+
+        for (Future<int[]> future : futures)
+            assertTrue(Arrays.stream(future.get(60, TimeUnit.SECONDS)).sum() > 0);
+        // the single loop thread of config.serverParallelism, and the workers of the decision pool of the bots
+        assertTrue(threads.created() <= 1 + Runtime.getRuntime().availableProcessors(), "" + threads.created());
+        server.shutdown();
+    }
+}
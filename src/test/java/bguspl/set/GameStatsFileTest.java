@@ -0,0 +1,93 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class GameStatsFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void encode_RoundTripsTheDeltas() {
+        long[] values = {0, 1, -1, 1_700_000_000_000L, 1_700_000_000_005L, Long.MIN_VALUE, Long.MAX_VALUE, 42};
+        ByteBuffer encoded = GameStatsFile.encode(values);
+        assertArrayEquals(values, GameStatsFile.decode(encoded));
+
+        long[] repeated = new long[100];
+        Arrays.fill(repeated, 123_456_789);
+        assertEquals(4 + 99, GameStatsFile.encode(repeated).remaining()); // a byte per repeated value
+    }
+
+    @Test
+    void append_StoresTheGamesInColumns() throws Exception {
+        Path file = directory.resolve("games.stats");
+        int games = GameStatsFile.ROW_GROUP_ROWS + 10; // fills a row group and starts another
+        long start = 1_700_000_000_000L;
+        for (int game = 0; game < games; game++) {
+            int players = 2 + game % 3;
+            int[] scores = new int[players];
+            int[] claims = new int[players];
+            int[] penalties = new int[players];
+            for (int player = 0; player < players; player++) {
+                scores[player] = (game + player) % 7;
+                claims[player] = scores[player] + 1;
+                penalties[player] = 1;
+            }
+            GameStatsFile.append(file, new GameStatsFile.Row(start + game * 60_000L, 60_000 + game, 77, 2, scores, claims,
+                    penalties));
+        }
+
+        try (GameStatsFile.Reader reader = new GameStatsFile.Reader(file)) {
+            assertEquals(games, reader.rows());
+            long[] ends = reader.column("end_time");
+            long[] players = reader.column("players");
+            long[] scores = reader.column("scores");
+            assertEquals(games, ends.length);
+            assertEquals(start + (games - 1) * 60_000L, ends[games - 1]);
+            long expectedScores = 0;
+            for (long count : players) expectedScores += count;
+            assertEquals(expectedScores, scores.length);
+            int index = 0;
+            for (int game = 0; game < games; game++)
+                for (int player = 0; player < players[game]; player++)
+                    assertEquals((game + player) % 7, scores[index++]);
+            for (long hash : reader.column("config_hash")) assertEquals(77, hash);
+        }
+        // a few bytes per game and player
+        assertTrue(Files.size(file) < games * 20L, "size " + Files.size(file));
+    }
+
+    @Test
+    void append_RecoversAFileCutAfterItsHeader() throws Exception {
+        // a crash right after the file was created
+        Path file = directory.resolve("games.stats");
+        ByteBuffer header = ByteBuffer.allocate(8).putInt(GameStatsFile.MAGIC).putInt(GameStatsFile.VERSION);
+        Files.write(file, header.array());
+
+        GameStatsFile.append(file, new GameStatsFile.Row(1, 2, 3, 4, new int[]{5}, new int[]{6}, new int[]{7}));
+        GameStatsFile.append(file, new GameStatsFile.Row(8, 9, 3, 4, new int[]{5}, new int[]{6}, new int[]{7}));
+        try (GameStatsFile.Reader reader = new GameStatsFile.Reader(file)) {
+            assertEquals(2, reader.rows());
+            assertArrayEquals(new long[]{1, 8}, reader.column("end_time"));
+        }
+    }
+
+    @Test
+    void append_RejectsAFileThatIsNotAStatisticsFile() throws Exception {
+        Path file = directory.resolve("games.stats");
+        Files.write(file, "not game statistics at all".getBytes());
+
+        assertThrows(IOException.class, () ->
+                GameStatsFile.append(file, new GameStatsFile.Row(1, 2, 3, 4, new int[]{5}, new int[]{6}, new int[]{7})));
+        assertEquals("not game statistics at all", new String(Files.readAllBytes(file)));
+    }
+}
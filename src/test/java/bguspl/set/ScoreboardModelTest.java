@@ -0,0 +1,92 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.swing.event.TableModelEvent;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ScoreboardModelTest {
+
+    private static final int PLAYERS = 20;
+
+    private ScoreboardModel scoreboard;
+    private List<TableModelEvent> events;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", Integer.toString(PLAYERS));
+        properties.put("UiFramesPerSecond", "1"); // the test flushes the freeze updates itself
+        scoreboard = new ScoreboardModel(new Config(Logger.getAnonymousLogger(), properties));
+        events = new ArrayList<>();
+        scoreboard.addTableModelListener(events::add);
+    }
+
+    @AfterEach
+    void tearDown() {
+        scoreboard.dispose();
+    }
+
+    @Test
+    void setScore_KeepsThePlayersRanked() {
+        Random random = new Random(7);
+        int[] scores = new int[PLAYERS];
+        for (int i = 0; i < 500; i++) {
+            int player = random.nextInt(PLAYERS);
+            scores[player] = random.nextInt(10);
+            scoreboard.setScore(player, scores[player]);
+        }
+
+        for (int row = 0; row < PLAYERS; row++) {
+            int player = scoreboard.player(row);
+            assertEquals(scores[player], scoreboard.getValueAt(row, ScoreboardModel.SCORE));
+            int better = 0;
+            for (int score : scores)
+                if (score > scores[player]) better++;
+            assertEquals(better + 1, scoreboard.getValueAt(row, ScoreboardModel.RANK));
+            if (row > 0) {
+                int previous = scoreboard.player(row - 1);
+                assertTrue(scores[previous] > scores[player] || scores[previous] == scores[player] && previous < player);
+            }
+        }
+    }
+
+    @Test
+    void setScore_NotifiesTheRowsWhoseRankChanged() {
+        scoreboard.setScore(5, 1);
+
+        assertEquals(5, scoreboard.player(0));
+        assertEquals(1, events.size());
+        assertEquals(0, events.get(0).getFirstRow());
+        assertEquals(PLAYERS - 1, events.get(0).getLastRow()); // all the others are now second
+        assertEquals(2, scoreboard.getValueAt(PLAYERS - 1, ScoreboardModel.RANK));
+    }
+
+    @Test
+    void setFreeze_BatchesTheUpdates() {
+        scoreboard.setFreeze(3, 2500);
+        scoreboard.setFreeze(3, 2400); // same displayed seconds
+        scoreboard.setFreeze(7, 1000);
+        assertTrue(events.isEmpty());
+
+        scoreboard.flushFreezes();
+        assertEquals(1, events.size());
+        assertEquals(3, events.get(0).getFirstRow());
+        assertEquals(7, events.get(0).getLastRow());
+        assertTrue(scoreboard.isFrozen(3));
+        assertTrue(scoreboard.getValueAt(3, ScoreboardModel.PLAYER).toString().endsWith(" (2)"));
+
+        scoreboard.setFreeze(3, 2100);
+        scoreboard.flushFreezes();
+        assertEquals(1, events.size());
+    }
+}
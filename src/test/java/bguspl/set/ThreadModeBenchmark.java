@@ -0,0 +1,68 @@
+package bguspl.set;
+
+import bguspl.set.ex.Player;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.Arrays;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+/**
+ * Runs a single headless game with many computer players for a fixed time and reports the cost of the configured
+ * execution mode (platform or virtual threads).
+ * Usage: ThreadModeBenchmark [platform|virtual] [computer players (default 10000)] [seconds (default 10)]
+ * It is not part of the game: run it from the test classes (after mvn test-compile), e.g.
+ * java -cp target/classes:target/test-classes bguspl.set.ThreadModeBenchmark virtual
+ */
+public class ThreadModeBenchmark {
+
+    public static void main(String[] args) throws InterruptedException {
+        boolean virtual = args.length > 0 && args[0].equalsIgnoreCase("virtual");
+        int computerPlayers = args.length > 1 ? Integer.parseInt(args[1]) : 10000;
+        long runMillis = (args.length > 2 ? Long.parseLong(args[2]) : 10) * 1000L;
+
+        Properties properties = new Properties();
+        properties.put("LogLevel", "OFF");
+        properties.put("HumanPlayers", "0");
+        properties.put("ComputerPlayers", Integer.toString(computerPlayers));
+        properties.put("VirtualThreads", Boolean.toString(virtual));
+        properties.put("TableDelaySeconds", "0");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        properties.put("TurnTimeoutSeconds", "5");
+        properties.put("TurnTimeoutWarningSeconds", "0");
+
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Config config = new Config(logger, properties);
+        Util util = new UtilImpl(config);
+        GameThreads threads = new GameThreads(logger, config);
+        Env env = new Env(logger, config, new UserInterfaceDecorator(logger, util, null), util, threads);
+        Game game = new Game(env, new Player[config.players]);
+
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        mx.resetPeakThreadCount();
+        Runtime runtime = Runtime.getRuntime();
+
+        long start = System.nanoTime();
+        Thread dealerThread = threads.newThread(game, "dealer");
+        dealerThread.start();
+        Thread.sleep(runMillis);
+        long heapUsed = runtime.totalMemory() - runtime.freeMemory();
+
+        long stopStart = System.nanoTime();
+        game.terminate();
+        dealerThread.join();
+        long end = System.nanoTime();
+
+        System.out.println("mode:                " + (threads.isVirtual() ? "virtual" : "platform") + " threads");
+        System.out.println("computer players:    " + computerPlayers);
+        System.out.println("run time:            " + (stopStart - start) / 1_000_000 + " ms");
+        System.out.println("shutdown time:       " + (end - stopStart) / 1_000_000 + " ms");
+        System.out.println("threads created:     " + threads.created());
+        System.out.println("peak platform threads: " + mx.getPeakThreadCount());
+        System.out.println("heap used:           " + heapUsed / (1024 * 1024) + " MB");
+        System.out.println("points scored:       " + Arrays.stream(game.scores()).sum());
+    }
+}
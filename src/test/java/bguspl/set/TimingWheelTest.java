@@ -0,0 +1,52 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TimingWheelTest {
+
+    private final TimingWheel wheel = new TimingWheel(5, 8, "test-wheel");
+
+    @Test
+    void schedule_RunsNotBeforeDelay() throws InterruptedException {
+        CountDownLatch ran = new CountDownLatch(1);
+        AtomicLong ranAt = new AtomicLong();
+        long start = System.nanoTime();
+        wheel.schedule(() -> {
+            ranAt.set(System.nanoTime());
+            ran.countDown();
+        }, 50);
+
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        assertTrue(ranAt.get() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+    }
+
+    @Test
+    void schedule_DelayLongerThanOneRotation() throws InterruptedException {
+        // 8 buckets of 5ms: a 100ms delay needs more than two rotations of the wheel
+        CountDownLatch ran = new CountDownLatch(1);
+        long start = System.nanoTime();
+        wheel.schedule(ran::countDown, 100);
+
+        assertTrue(ran.await(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(100));
+    }
+
+    @Test
+    void cancel_TaskDoesNotRun() throws InterruptedException {
+        AtomicBoolean cancelledRan = new AtomicBoolean();
+        CountDownLatch later = new CountDownLatch(1);
+        TimingWheel.Timeout timeout = wheel.schedule(() -> cancelledRan.set(true), 20);
+        wheel.schedule(later::countDown, 60);
+        timeout.cancel();
+
+        assertTrue(later.await(1, TimeUnit.SECONDS));
+        assertFalse(cancelledRan.get());
+    }
+}
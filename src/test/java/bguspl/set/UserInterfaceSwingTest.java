@@ -0,0 +1,116 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.function.IntConsumer;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UserInterfaceSwingTest {
+
+    /**
+     * Card images that are never painted; keeps the callback for the loaded images.
+     */
+    private static class StubCardImages implements CardImages {
+        IntConsumer loaded;
+
+        @Override
+        public void start(IntConsumer loaded) {
+            this.loaded = loaded;
+        }
+
+        @Override
+        public Image image(int card) {
+            return null;
+        }
+    }
+
+    /**
+     * Records the areas it is asked to repaint instead of repainting them.
+     */
+    private static class RecordingGamePanel extends UserInterfaceSwing.GamePanel {
+        private static final long serialVersionUID = 1L;
+
+        final List<Rectangle> repainted = new ArrayList<>();
+
+        RecordingGamePanel(Logger logger, Config config, CardImages images) {
+            super(logger, config, images, System.currentTimeMillis());
+        }
+
+        @Override
+        public void repaint(long tm, int x, int y, int width, int height) {
+            if (repainted != null) repainted.add(new Rectangle(x, y, width, height)); // null while constructing
+        }
+    }
+
+    private Config config;
+    private StubCardImages images;
+    private RecordingGamePanel panel;
+
+    @BeforeEach
+    void setUp() {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "4");
+        properties.put("CellWidth", "100");
+        properties.put("CellHeight", "50");
+        config = new Config(logger, properties);
+        images = new StubCardImages();
+        panel = new RecordingGamePanel(logger, config, images);
+        panel.repainted.clear();
+    }
+
+    @Test
+    void placeCard_RepaintsOnlyTheCellOfTheSlot() {
+        panel.placeCard(5, 7); // row 1, column 1
+        assertEquals(Collections.singletonList(new Rectangle(100, 50, 100, 50)), panel.repainted);
+    }
+
+    @Test
+    void removeCard_RepaintsOnlyTheCellOfTheSlot() {
+        panel.placeCard(11, 7); // row 2, column 3
+        panel.repainted.clear();
+        panel.removeCard(11);
+        assertEquals(Collections.singletonList(new Rectangle(300, 100, 100, 50)), panel.repainted);
+    }
+
+    @Test
+    void cardLoaded_RepaintsOnlyTheCellsShowingTheCard() {
+        panel.placeCard(0, 3);
+        panel.placeCard(6, 7); // row 1, column 2
+        panel.repainted.clear();
+
+        images.loaded.accept(7);
+        assertEquals(Collections.singletonList(new Rectangle(200, 50, 100, 50)), panel.repainted);
+        panel.repainted.clear();
+        images.loaded.accept(9); // not on the table
+        assertTrue(panel.repainted.isEmpty());
+    }
+
+    @Test
+    void setTokens_ShowsThePlayersWithoutRepaintingTheCards() {
+        BitSet players = new BitSet();
+        players.set(0);
+        players.set(1);
+        panel.setTokens(6, players);
+        assertEquals(config.playerNames[0] + ", " + config.playerNames[1], panel.tokenText(6));
+
+        players.clear(0); // not kept by the panel
+        assertEquals(config.playerNames[0] + ", " + config.playerNames[1], panel.tokenText(6));
+        panel.setTokens(6, players);
+        assertEquals(config.playerNames[1], panel.tokenText(6));
+        panel.setTokens(6, new BitSet());
+        assertEquals("", panel.tokenText(6));
+        assertTrue(panel.repainted.isEmpty());
+    }
+}
@@ -0,0 +1,94 @@
+package bguspl.set;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Properties;
+import java.util.Random;
+import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class UtilImplTest {
+
+    private static Config config(int featureCount) {
+        Logger logger = Logger.getAnonymousLogger();
+        logger.setUseParentHandlers(false);
+        Properties properties = new Properties();
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", Integer.toString(featureCount));
+        return new Config(logger, properties);
+    }
+
+    /**
+     * @return - the sets of the deck, found by testing the features of every 3 cards (in the order of the general search).
+     */
+    private static List<int[]> bruteForce(Config config, List<Integer> deck) {
+        List<int[]> sets = new ArrayList<>();
+        for (int i = 0; i < deck.size(); i++)
+            for (int j = i + 1; j < deck.size(); j++)
+                for (int k = j + 1; k < deck.size(); k++) {
+                    int[] cards = {deck.get(i), deck.get(j), deck.get(k)};
+                    boolean set = true;
+                    for (int f = 0, weight = 1; f < config.featureCount; f++, weight *= 3) {
+                        int sum = 0;
+                        for (int card : cards) sum += card / weight % 3;
+                        set &= sum % 3 == 0;
+                    }
+                    if (set) {
+                        Arrays.sort(cards);
+                        sets.add(cards);
+                    }
+                }
+        return sets;
+    }
+
+    private static void assertSameSets(List<int[]> expected, List<int[]> actual) {
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) assertArrayEquals(expected.get(i), actual.get(i));
+    }
+
+    @Test
+    void findSets_FindsAllTheSetsOfTheDeck() {
+        Config config = config(4);
+        List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+        List<int[]> sets = new UtilImpl(config).findSets(deck, Integer.MAX_VALUE);
+
+        assertEquals(1080, sets.size());
+        assertSameSets(bruteForce(config, deck), sets);
+    }
+
+    @Test
+    void findSets_FindsTheSetsInTheOrderOfTheGeneralSearch() {
+        Config config = config(4);
+        UtilImpl util = new UtilImpl(config);
+        Random random = new Random(42);
+        for (int round = 0; round < 20; round++) {
+            List<Integer> deck = IntStream.range(0, config.deckSize).boxed().collect(Collectors.toList());
+            Collections.shuffle(deck, random);
+            deck = deck.subList(0, 15);
+
+            assertSameSets(bruteForce(config, deck), util.findSets(deck, Integer.MAX_VALUE));
+            List<int[]> first = util.findSets(deck, 1);
+            if (!first.isEmpty()) assertArrayEquals(bruteForce(config, deck).get(0), first.get(0));
+        }
+    }
+
+    @Test
+    void testSet_CompletesPairsOfALargeDeck() {
+        // 729 cards: the third cards are computed on demand instead of looked up
+        Config config = config(6);
+        UtilImpl util = new UtilImpl(config);
+        Random random = new Random(42);
+        for (int round = 0; round < 1000; round++) {
+            int[] cards = random.ints(0, config.deckSize).distinct().limit(3).toArray();
+            List<Integer> deck = IntStream.of(cards).boxed().collect(Collectors.toList());
+            assertEquals(!bruteForce(config, deck).isEmpty(), util.testSet(cards));
+        }
+    }
+}
@@ -0,0 +1,176 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.GameThreads;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ComputerPlayerTest {
+
+    private Env env;
+    private TableSnapshot snapshot;
+
+    @BeforeEach
+    void setUp() {
+        Properties properties = new Properties();
+        properties.put("Rows", "2");
+        properties.put("Columns", "2");
+        properties.put("ComputerReactionSeconds", "0");
+        properties.put("ComputerReactionJitterSeconds", "0");
+        properties.put("BotDecisionBudgetSeconds", "0.05");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new UtilImpl(config));
+
+        // cards 0, 1 and 2 (0000, 0001 and 0002) form a set, card 4 (0011) does not belong to it
+        snapshot = new TableSnapshot(1, new Integer[]{4, 0, 1, 2});
+    }
+
+    private int stepAfterDecision(ComputerPlayer computer, boolean[] tokens) throws InterruptedException {
+        Thread.sleep(20);
+        return computer.step(snapshot, slot -> tokens[slot]);
+    }
+
+    @Test
+    void step_PressesTheSlotsOfASet() throws InterruptedException {
+        SetFinderBot bot = new SetFinderBot();
+        bot.start(env, 0);
+        ComputerPlayer computer = new ComputerPlayer(env, bot);
+        boolean[] tokens = new boolean[4];
+
+        assertEquals(-1, computer.step(snapshot, slot -> tokens[slot])); // the decision is requested
+        Set<Integer> pressed = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            int slot = stepAfterDecision(computer, tokens);
+            assertTrue(slot >= 0);
+            tokens[slot] = true;
+            pressed.add(slot);
+        }
+        assertEquals(new HashSet<>(Arrays.asList(1, 2, 3)), pressed);
+        assertEquals(-1, stepAfterDecision(computer, tokens)); // the claim is complete
+    }
+
+    @Test
+    void step_ClaimsAgainAfterAFailedClaim() throws InterruptedException {
+        SetFinderBot bot = new SetFinderBot();
+        bot.start(env, 0);
+        ComputerPlayer computer = new ComputerPlayer(env, bot);
+        boolean[] tokens = {false, true, true, true};
+
+        computer.step(snapshot, slot -> tokens[slot]);
+        assertEquals(-1, stepAfterDecision(computer, tokens)); // the tokens are on the set already
+        computer.claimFailed(snapshot.version);
+        assertEquals(-1, stepAfterDecision(computer, tokens)); // re-plans
+        int slot = stepAfterDecision(computer, tokens);
+        assertTrue(slot >= 1 && slot <= 3); // a token of the set is lifted
+        tokens[slot] = false;
+        assertEquals(slot, stepAfterDecision(computer, tokens)); // and put back, which claims again
+        tokens[slot] = true;
+        assertEquals(-1, stepAfterDecision(computer, tokens));
+    }
+
+    @Test
+    void step_IgnoresFailedClaimsOfAnotherTable() throws InterruptedException {
+        SetFinderBot bot = new SetFinderBot();
+        bot.start(env, 0);
+        ComputerPlayer computer = new ComputerPlayer(env, bot);
+        boolean[] tokens = {false, true, true, true};
+
+        computer.step(snapshot, slot -> tokens[slot]);
+        computer.claimFailed(snapshot.version - 1);
+        assertEquals(-1, stepAfterDecision(computer, tokens));
+        assertEquals(-1, stepAfterDecision(computer, tokens));
+    }
+
+    @Test
+    void step_RemovesTokensOutsideThePlan() throws InterruptedException {
+        SetFinderBot bot = new SetFinderBot();
+        bot.start(env, 0);
+        ComputerPlayer computer = new ComputerPlayer(env, bot);
+        boolean[] tokens = {true, false, false, false};
+
+        computer.step(snapshot, slot -> tokens[slot]);
+        assertEquals(0, stepAfterDecision(computer, tokens));
+    }
+
+    @Test
+    void step_DiscardsDecisionsOverBudget() throws InterruptedException {
+        ComputerPlayer computer = new ComputerPlayer(env, snapshot -> {
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException ignored) {
+            }
+            return new int[]{1, 2, 3};
+        });
+        boolean[] tokens = new boolean[4];
+
+        computer.step(snapshot, slot -> tokens[slot]);
+        Thread.sleep(100); // more than the budget
+        assertEquals(-1, computer.step(snapshot, slot -> tokens[slot]));
+        assertEquals(1, computer.timeouts());
+    }
+
+    @Test
+    void step_ReplacesTheWorkersOfAbandonedDecisions() throws InterruptedException {
+        CountDownLatch release = new CountDownLatch(1);
+        Bot stuck = snapshot -> {
+            while (true) {
+                try {
+                    release.await(); // ignores interrupts
+                    return null;
+                } catch (InterruptedException ignored) {
+                }
+            }
+        };
+        boolean[] tokens = new boolean[4];
+        List<ComputerPlayer> stuckPlayers = new ArrayList<>();
+        for (int i = 0; i < Runtime.getRuntime().availableProcessors(); i++) {
+            ComputerPlayer computer = new ComputerPlayer(env, stuck);
+            computer.step(snapshot, slot -> tokens[slot]);
+            stuckPlayers.add(computer);
+        }
+        Thread.sleep(100); // more than the budget
+        for (ComputerPlayer computer : stuckPlayers) {
+            assertEquals(-1, computer.step(snapshot, slot -> tokens[slot]));
+            assertEquals(1, computer.timeouts());
+        }
+
+        try {
+            SetFinderBot bot = new SetFinderBot();
+            bot.start(env, 0);
+            ComputerPlayer computer = new ComputerPlayer(env, bot);
+            computer.step(snapshot, slot -> tokens[slot]);
+            assertTrue(stepAfterDecision(computer, tokens) >= 0); // decided by a replacement worker
+            assertEquals(0, computer.timeouts());
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void step_RunsTheDecisionsOnThreadsOfEnvThreads() throws InterruptedException {
+        GameThreads threads = new GameThreads();
+        Env own = new Env(env.logger, env.config, env.ui, env.util, threads);
+        SetFinderBot bot = new SetFinderBot();
+        bot.start(own, 0);
+        ComputerPlayer computer = new ComputerPlayer(own, bot);
+        boolean[] tokens = new boolean[4];
+
+        computer.step(snapshot, slot -> tokens[slot]);
+        assertTrue(stepAfterDecision(computer, tokens) >= 0);
+        assertTrue(threads.created() > 0);
+        threads.shutdown();
+    }
+}
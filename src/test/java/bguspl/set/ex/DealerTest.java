@@ -5,7 +5,12 @@ import bguspl.set.Env;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -30,7 +35,7 @@ class DealerTest {
         Config config = new Config(logger, properties);
 
 
-        Env env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
+        env = new Env(logger, config, new TableTest.MockUserInterface(), new TableTest.MockUtil());
         Integer[] slotToCard = new Integer[config.tableSize];
         Integer[] cardToSlot = new Integer[config.deckSize];
         table = new Table(env, slotToCard, cardToSlot);
@@ -48,13 +53,132 @@ class DealerTest {
             table.cardToSlot[i] = i;
         }
     }
+    private void placeSetTokens(int player) {
+        for (int slot = 0; slot < 3; slot++) {
+            table.placeCard(slot + 5, slot);
+            table.placeToken(player, slot);
+        }
+    }
     @Test
     void sizePlusOneTestWhenQueueIsNotFull(){
+        placeSetTokens(0);
         int expectedSize = dealer.playersSetsOrder.size() + 1;
         dealer.testMySet(0);
         assertEquals(expectedSize, dealer.playersSetsOrder.size());
     }
     @Test
+    void testMySet_ClaimsTheCardsUnderTheTokens(){
+        placeSetTokens(1);
+        dealer.testMySet(1);
+        Claim claim = dealer.playersSetsOrder.peek();
+        assertArrayEquals(new int[]{0, 1, 2}, claim.slots);
+        assertArrayEquals(new int[]{5, 6, 7}, claim.cards);
+        assertEquals(table.snapshot().version, claim.tableVersion);
+    }
+    @Test
+    void testMySet_RejectsClaimsMadeAfterTheCardsChanged(){
+        placeSetTokens(0);
+        table.placeCard(8, 3); // the table changed after the last token was placed
+        assertEquals(Player.DealerRespond.REJECTED, dealer.testMySet(0).getNow(null));
+        assertEquals(0, dealer.playersSetsOrder.size());
+        assertEquals(1, dealer.admission().rejections(ClaimAdmission.Rejection.STALE));
+    }
+    @Test
+    void testMySet_AdmitsClaimsOnceTheTokenIsPlacedAgain(){
+        placeSetTokens(0);
+        table.placeCard(8, 3);
+        table.removeToken(0, 2);
+        table.placeToken(0, 2); // the player saw the new table
+        assertNull(dealer.testMySet(0).getNow(null));
+        assertEquals(1, dealer.playersSetsOrder.size());
+        assertEquals(0, dealer.admission().rejections(ClaimAdmission.Rejection.STALE));
+    }
+    @Test
+    void testMySet_RejectsClaimsWithoutCards(){
+        assertEquals(Player.DealerRespond.REJECTED, dealer.testMySet(0).getNow(null));
+        assertEquals(0, dealer.playersSetsOrder.size());
+    }
+    @Test
+    void testMySet_WithdrawnClaimsAreNotJudged(){
+        placeSetTokens(0);
+        CompletableFuture<Player.DealerRespond> verdict = dealer.testMySet(0);
+        Claim claim = dealer.playersSetsOrder.peek();
+        assertTrue(verdict.cancel(false)); // the player stopped waiting
+        assertFalse(claim.answer(Player.DealerRespond.POINT));
+
+        dealer.sleepUntilWokenOrTimeout();
+        assertTrue(verdict.isCancelled());
+        assertEquals(0, dealer.playersSetsOrder.size());
+        assertEquals(3, table.getNumOfTokens(0));
+    }
+    @Test
+    void testMySet_JudgedClaimsCannotBeWithdrawn(){
+        placeSetTokens(0);
+        CompletableFuture<Player.DealerRespond> verdict = dealer.testMySet(0);
+        while (!verdict.isDone()) dealer.sleepUntilWokenOrTimeout(); // waits for the reorder window
+
+        assertEquals(Player.DealerRespond.PENALTY, verdict.getNow(null));
+        assertFalse(verdict.cancel(false));
+        assertEquals(Player.DealerRespond.PENALTY, verdict.getNow(null));
+    }
+    @Test
+    void sleepUntilWokenOrTimeout_JudgesClaimsInKeyPressOrder(){
+        placeSetTokens(0);
+        for (int slot = 0; slot < 3; slot++) table.placeToken(1, slot);
+        long now = System.nanoTime();
+        List<Integer> judged = new ArrayList<>();
+        CompletableFuture<Player.DealerRespond> later = dealer.testMySet(0, now);
+        later.thenRun(() -> judged.add(0));
+        CompletableFuture<Player.DealerRespond> earlier = dealer.testMySet(1, now - 1_000_000); // pressed 1ms earlier
+        earlier.thenRun(() -> judged.add(1));
+
+        while (!later.isDone() || !earlier.isDone()) dealer.sleepUntilWokenOrTimeout();
+        assertEquals(Arrays.asList(1, 0), judged);
+        assertEquals(1, dealer.reordered());
+    }
+    @Test
+    void removePlayersIfNeeded_UnindexesTheDisgracedClaims(){
+        // a dealer for which every 3 cards form a set
+        Env setEnv = new Env(env.logger, env.config, env.ui, new TableTest.MockUtil() {
+            @Override
+            public boolean testSet(int[] cards) {
+                return true;
+            }
+        });
+        dealer = new Dealer(setEnv, table, players);
+        placeSetTokens(0);
+        for (int slot = 0; slot < 3; slot++) table.placeToken(1, slot);
+        long now = System.nanoTime();
+        CompletableFuture<Player.DealerRespond> first = dealer.testMySet(0, now - 1_000_000);
+        CompletableFuture<Player.DealerRespond> second = dealer.testMySet(1, now);
+        dealer.takeClaims();
+        for (int slot = 0; slot < 3; slot++) assertEquals(BitSet.valueOf(new long[]{0b11}), dealer.claimants(slot));
+
+        while (!first.isDone()) dealer.sleepUntilWokenOrTimeout();
+        assertEquals(Player.DealerRespond.POINT, first.getNow(null));
+        for (int slot = 0; slot < 3; slot++) assertEquals(BitSet.valueOf(new long[]{0b10}), dealer.claimants(slot));
+
+        dealer.removePlayersIfNeeded();
+        assertEquals(Player.DealerRespond.DISGRACE, second.getNow(null));
+        for (int slot = 0; slot < 4; slot++) assertTrue(dealer.claimants(slot).isEmpty());
+    }
+    @Test
+    void takeClaims_UnindexesTheSupersededClaims(){
+        placeSetTokens(0);
+        CompletableFuture<Player.DealerRespond> first = dealer.testMySet(0, System.nanoTime() + 1_000_000_000L);
+        dealer.takeClaims();
+        assertTrue(dealer.claimants(2).get(0));
+
+        first.cancel(false); // withdrawn, and claimed again on other slots
+        table.removeToken(0, 2);
+        table.placeCard(8, 3);
+        table.placeToken(0, 3);
+        dealer.testMySet(0, System.nanoTime() + 1_000_000_000L);
+        dealer.takeClaims();
+        for (int slot : new int[]{0, 1, 3}) assertEquals(BitSet.valueOf(new long[]{0b1}), dealer.claimants(slot));
+        assertTrue(dealer.claimants(2).isEmpty());
+    }
+    @Test
     void dealer_removeAllCardsFromTable(){
         fillAllSlots();
         dealer.removeAllCardsFromTable();
@@ -0,0 +1,134 @@
+package bguspl.set.ex;
+
+import bguspl.set.Config;
+import bguspl.set.Env;
+import bguspl.set.UtilImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class EventLoopDealerTest {
+
+    /**
+     * Records the cards on the table and the scores and freezes of the players.
+     */
+    private static class RecordingUserInterface extends TableTest.MockUserInterface {
+        final ConcurrentHashMap<Integer, Integer> cards = new ConcurrentHashMap<>();
+        final CountDownLatch scored = new CountDownLatch(1);
+        final CountDownLatch frozen = new CountDownLatch(1);
+
+        @Override
+        public void placeCard(int card, int slot) {
+            cards.put(slot, card);
+        }
+
+        @Override
+        public void removeCard(int slot) {
+            cards.remove(slot);
+        }
+
+        @Override
+        public void setScore(int player, int score) {
+            scored.countDown();
+        }
+
+        @Override
+        public void setFreeze(int player, long millies) {
+            frozen.countDown();
+        }
+    }
+
+    private Env env;
+    private RecordingUserInterface ui;
+    private EventLoopDealer game;
+    private ScheduledExecutorService executor;
+    private CompletableFuture<Void> done;
+
+    @BeforeEach
+    void setUp() throws InterruptedException {
+        // a deck of 9 cards, all of them on the table: the table always holds sets
+        Properties properties = new Properties();
+        properties.put("Rows", "3");
+        properties.put("Columns", "3");
+        properties.put("FeatureSize", "3");
+        properties.put("FeatureCount", "2");
+        properties.put("HumanPlayers", "1");
+        properties.put("ComputerPlayers", "0");
+        properties.put("PlayerKeys1", "81,87,69,65,83,68,90,88,67");
+        properties.put("TableDelaySeconds", "0.5"); // not applied by the event loop
+        properties.put("TurnTimeoutSeconds", "60");
+        properties.put("PointFreezeSeconds", "0");
+        properties.put("PenaltyFreezeSeconds", "0");
+        TableTest.MockLogger logger = new TableTest.MockLogger();
+        Config config = new Config(logger, properties);
+        ui = new RecordingUserInterface();
+        env = new Env(logger, config, ui, new UtilImpl(config));
+        game = new EventLoopDealer(env);
+        executor = Executors.newSingleThreadScheduledExecutor();
+        done = game.start(executor);
+
+        long deadline = System.currentTimeMillis() + 1000; // less than the table delay of the 9 cards
+        while (ui.cards.size() < config.tableSize && System.currentTimeMillis() < deadline) Thread.sleep(1);
+        assertEquals(config.tableSize, ui.cards.size());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        game.terminate();
+        done.get(1, TimeUnit.SECONDS);
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return - the slots of the first 3 cards on the table that form (or do not form) a set.
+     */
+    private int[] slots(boolean set) {
+        List<Integer> slots = new ArrayList<>(ui.cards.keySet());
+        for (int a = 0; a < slots.size(); a++)
+            for (int b = a + 1; b < slots.size(); b++)
+                for (int c = b + 1; c < slots.size(); c++) {
+                    int[] cards = {ui.cards.get(slots.get(a)), ui.cards.get(slots.get(b)), ui.cards.get(slots.get(c))};
+                    if (env.util.testSet(cards) == set) return new int[]{slots.get(a), slots.get(b), slots.get(c)};
+                }
+        throw new AssertionError("no such cards on the table");
+    }
+
+    @Test
+    void keyPressed_ClaimsASetAndScores() throws Exception {
+        int[] set = slots(true);
+        for (int slot : set) game.keyPressed(0, slot);
+
+        assertTrue(ui.scored.await(1, TimeUnit.SECONDS));
+        assertArrayEquals(new int[]{1}, game.scores());
+        assertArrayEquals(new int[]{0}, game.penalties());
+    }
+
+    @Test
+    void keyPressed_ClaimsANonSetAndIsPenalized() throws Exception {
+        int[] cards = slots(false);
+        for (int slot : cards) game.keyPressed(0, slot);
+
+        assertTrue(ui.frozen.await(1, TimeUnit.SECONDS));
+        assertArrayEquals(new int[]{0}, game.scores());
+        assertArrayEquals(new int[]{1}, game.penalties());
+    }
+
+    @Test
+    void terminate_EndsTheGame() throws Exception {
+        game.terminate();
+        done.get(1, TimeUnit.SECONDS);
+        assertTrue(done.isDone());
+    }
+}
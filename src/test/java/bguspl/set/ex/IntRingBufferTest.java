@@ -0,0 +1,106 @@
+package bguspl.set.ex;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IntRingBufferTest {
+
+    @Test
+    void offerAndTake_InOrder() throws InterruptedException {
+        IntRingBuffer buffer = new IntRingBuffer(4);
+        for (int i = 0; i < 3; i++)
+            assertTrue(buffer.offer(i));
+        assertEquals(3, buffer.size());
+        for (int i = 0; i < 3; i++)
+            assertEquals(i, buffer.take());
+        assertTrue(buffer.isEmpty());
+    }
+
+    @Test
+    void take_ExposesTheStampOfTheValue() throws InterruptedException {
+        IntRingBuffer buffer = new IntRingBuffer(4);
+        buffer.offer(1, 100);
+        buffer.offer(2, 200);
+        assertEquals(1, buffer.take());
+        assertEquals(100, buffer.lastStamp());
+        assertEquals(2, buffer.take());
+        assertEquals(200, buffer.lastStamp());
+    }
+
+    @Test
+    void offer_FailsWhenFull() {
+        IntRingBuffer buffer = new IntRingBuffer(3); // rounded up to 4
+        for (int i = 0; i < 4; i++)
+            assertTrue(buffer.offer(i));
+        assertFalse(buffer.offer(4));
+    }
+
+    @Test
+    void clear_DiscardsOfferedValues() throws InterruptedException {
+        IntRingBuffer buffer = new IntRingBuffer(4);
+        for (int i = 0; i < 3; i++)
+            buffer.offer(i);
+        buffer.clear();
+        assertEquals(0, buffer.size());
+        assertTrue(buffer.offer(7));
+        assertEquals(7, buffer.take());
+    }
+
+    @Test
+    void clear_FreesTheCapacityWhenAppliedByTheConsumer() throws InterruptedException {
+        IntRingBuffer buffer = new IntRingBuffer(4);
+        for (int i = 0; i < 4; i++)
+            buffer.offer(i);
+        buffer.clear();
+        assertFalse(buffer.offer(7)); // the consumer may still be reading a cleared value
+
+        AtomicInteger taken = new AtomicInteger(-1);
+        Thread consumer = new Thread(() -> {
+            try {
+                taken.set(buffer.take());
+            } catch (InterruptedException ignored) {
+            }
+        });
+        consumer.start();
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!buffer.offer(7) && System.currentTimeMillis() < deadline) Thread.yield();
+        consumer.join(1000);
+        assertEquals(7, taken.get());
+    }
+
+    @Test
+    void take_WaitsForProducer() throws InterruptedException {
+        IntRingBuffer buffer = new IntRingBuffer(4);
+        int values = 100000;
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < values; i++)
+                while (!buffer.offer(i)) Thread.yield();
+        });
+        producer.start();
+        for (int i = 0; i < values; i++)
+            assertEquals(i, buffer.take());
+        producer.join();
+    }
+
+    @Test
+    void take_ThrowsWhenInterrupted() throws InterruptedException {
+        IntRingBuffer buffer = new IntRingBuffer(4);
+        AtomicInteger result = new AtomicInteger();
+        Thread consumer = new Thread(() -> {
+            try {
+                buffer.take();
+                result.set(1);
+            } catch (InterruptedException e) {
+                result.set(2);
+            }
+        });
+        consumer.start();
+        Thread.sleep(50);
+        consumer.interrupt();
+        consumer.join(1000);
+        assertEquals(2, result.get());
+    }
+}
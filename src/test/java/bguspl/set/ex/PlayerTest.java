@@ -11,9 +11,11 @@ import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.util.Properties;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.verify;
@@ -23,6 +25,7 @@ import static org.mockito.Mockito.when;
 class PlayerTest {
 
     Player player;
+    private Env env;
     @Mock
     Util util;
     @Mock
@@ -42,7 +45,7 @@ class PlayerTest {
     @BeforeEach
     void setUp() {
         // purposely do not find the configuration files (use defaults here).
-        Env env = new Env(logger, new Config(logger, (String) null), ui, util);
+        env = new Env(logger, new Config(logger, (String) null), ui, util);
         player = new Player(env, dealer, table, 0, false);
         assertInvariants();
     }
@@ -78,6 +81,29 @@ class PlayerTest {
         assertEquals(expectedSize, player.actions.size());
     }
 
+    @Test
+    void keyPressed_CoalescesAutoRepeatedKeyPresses(){
+        Properties properties = new Properties();
+        properties.put("CoalesceKeyPresses", "True");
+        Env coalescing = new Env(logger, new Config(logger, properties), ui, util);
+        Player human = new Player(coalescing, dealer, table, 1, true);
+        assertTrue(human.keyPressed(2, 0, false));
+        assertFalse(human.keyPressed(2, 1, true)); // auto repeat of the held key
+        assertTrue(human.keyPressed(2, 2, false)); // a quick deliberate second press
+        assertTrue(human.keyPressed(3, 3, true));
+        assertEquals(3, human.actions.size());
+        assertEquals(1, human.getDroppedKeyPresses());
+    }
+
+    @Test
+    void keyPressed_KeepsRepeatedKeyPressesByDefault(){
+        Player human = new Player(env, dealer, table, 1, true);
+        assertTrue(human.keyPressed(2, 0, false));
+        assertTrue(human.keyPressed(2, 1, true));
+        assertEquals(2, human.actions.size());
+        assertEquals(0, human.getDroppedKeyPresses());
+    }
+
     @Test
     void playerTerminate(){
         player.terminate();
@@ -7,11 +7,14 @@ import bguspl.set.Util;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.Properties;
 import java.util.logging.Logger;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class TableTest {
 
@@ -108,6 +111,38 @@ class TableTest {
         assertEquals(true, table.tokensPerPlayer[0][0]);
     }
 
+    @Test
+    void snapshot_IsRepublishedOnCardChanges() throws InterruptedException {
+        table.placeCard(8, 2);
+        TableSnapshot before = table.snapshot();
+        table.placeCard(6, 0);
+        table.removeCard(2);
+        TableSnapshot after = table.snapshot();
+
+        assertEquals(8, before.card(2));
+        assertEquals(2, before.slotOf(8));
+        assertEquals(Arrays.asList(8), before.cards());
+        assertTrue(after.version > before.version);
+        assertEquals(-1, after.card(2));
+        assertEquals(-1, after.slotOf(8));
+        assertEquals(0, after.slotOf(6));
+        assertEquals(Arrays.asList(6), after.cards());
+    }
+
+    @Test
+    void tokens_IsRepublishedOnTokenChanges() throws InterruptedException {
+        fillAllSlots();
+        table.placeToken(0, 1);
+        table.placeToken(0, 3);
+        BitSet before = table.tokens(0);
+        table.removeToken(0, 1);
+        table.removeCard(3);
+
+        assertEquals(BitSet.valueOf(new long[]{0b1010}), before);
+        assertTrue(table.tokens(0).isEmpty());
+        assertTrue(table.tokens(1).isEmpty());
+    }
+
     static class MockUserInterface implements UserInterface {
         @Override
         public void dispose() {}
@@ -118,6 +153,8 @@ class TableTest {
         @Override
         public void setCountdown(long millies, boolean warn) {}
         @Override
+        public void setCountdownDeadline(long deadline, long warningMillies) {}
+        @Override
         public void setElapsed(long millies) {}
         @Override
         public void setScore(int player, int score) {}